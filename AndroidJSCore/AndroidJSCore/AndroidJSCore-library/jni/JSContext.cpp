@@ -171,3 +171,20 @@ NATIVE(JSContext,void,garbageCollect) (PARAMS, jlong ctx) {
     JSGarbageCollect((JSContextRef)ctx);
 }
 
+
+NATIVE(JSContext,void,unprotectAll) (PARAMS, jlong ctx, jlongArray valueRefs,
+    jlongArray stringRefs) {
+    jsize len = env->GetArrayLength(valueRefs);
+    jlong *values = env->GetLongArrayElements(valueRefs, 0);
+    for (jsize i=0; i<len; i++) {
+        JSValueUnprotect((JSContextRef)ctx, (JSValueRef)values[i]);
+    }
+    env->ReleaseLongArrayElements(valueRefs, values, JNI_ABORT);
+
+    len = env->GetArrayLength(stringRefs);
+    jlong *strings = env->GetLongArrayElements(stringRefs, 0);
+    for (jsize i=0; i<len; i++) {
+        JSStringRelease((JSStringRef)strings[i]);
+    }
+    env->ReleaseLongArrayElements(stringRefs, strings, JNI_ABORT);
+}
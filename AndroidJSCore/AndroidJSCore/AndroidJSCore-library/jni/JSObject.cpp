@@ -289,6 +289,133 @@ NATIVE(JSObject,jobject,deleteProperty) (PARAMS, jlong ctx, jlong object,
     return out;
 }
 
+NATIVE(JSObject,jobject,getProperties) (PARAMS, jlong ctx, jlong object,
+    jlongArray propertyNames, jintArray types, jdoubleArray numbers, jlongArray references,
+    jobjectArray strings) {
+
+    JSValueRef exception = NULL;
+
+    jclass ret = env->FindClass("org/liquidplayer/webkit/javascriptcore/JSValue$JNIReturnObject");
+    jmethodID cid = env->GetMethodID(ret,"<init>","()V");
+    jobject out = env->NewObject(ret, cid);
+
+    jsize len = env->GetArrayLength(propertyNames);
+    jlong *nameArr = env->GetLongArrayElements(propertyNames, 0);
+    jint* typeArr = new jint[len];
+    jdouble* numberArr = new jdouble[len];
+    jlong* referenceArr = new jlong[len];
+    for (jsize i=0; i<len; i++) {
+        typeArr[i] = kJSTypeUndefined;
+        numberArr[i] = 0;
+        referenceArr[i] = 0;
+    }
+
+    for (jsize i=0; i<len && !exception; i++) {
+        JSValueRef value = JSObjectGetProperty((JSContextRef)ctx, (JSObjectRef)object,
+            (JSStringRef)nameArr[i], &exception);
+        if (exception) break;
+
+        typeArr[i] = JSValueGetType((JSContextRef)ctx, value);
+        switch (typeArr[i]) {
+            case kJSTypeBoolean:
+                numberArr[i] = JSValueToBoolean((JSContextRef)ctx, value) ? 1 : 0;
+                break;
+            case kJSTypeNumber:
+                numberArr[i] = JSValueToNumber((JSContextRef)ctx, value, NULL);
+                break;
+            case kJSTypeString: {
+                JSStringRef string = JSValueToStringCopy((JSContextRef)ctx, value, NULL);
+                jstring jstr = env->NewString(JSStringGetCharactersPtr(string),
+                    (jsize)JSStringGetLength(string));
+                JSStringRelease(string);
+                env->SetObjectArrayElement(strings, i, jstr);
+                env->DeleteLocalRef(jstr);
+                break;
+            }
+            case kJSTypeObject:
+                JSValueProtect((JSContextRef)ctx, value);
+                referenceArr[i] = (long)value;
+                break;
+            default:
+                break;
+        }
+    }
+
+    env->ReleaseLongArrayElements(propertyNames, nameArr, JNI_ABORT);
+    env->SetIntArrayRegion(types, 0, len, typeArr);
+    env->SetDoubleArrayRegion(numbers, 0, len, numberArr);
+    env->SetLongArrayRegion(references, 0, len, referenceArr);
+    delete [] typeArr;
+    delete [] numberArr;
+    delete [] referenceArr;
+
+    jfieldID fid = env->GetFieldID(ret , "exception", "J");
+    env->SetLongField( out, fid, (long) exception);
+
+    return out;
+}
+
+NATIVE(JSObject,jobject,setProperties) (PARAMS, jlong ctx, jlong object,
+    jlongArray propertyNames, jintArray types, jdoubleArray numbers, jlongArray references,
+    jobjectArray strings, jint attributes) {
+
+    JSValueRef exception = NULL;
+
+    jclass ret = env->FindClass("org/liquidplayer/webkit/javascriptcore/JSValue$JNIReturnObject");
+    jmethodID cid = env->GetMethodID(ret,"<init>","()V");
+    jobject out = env->NewObject(ret, cid);
+
+    jsize len = env->GetArrayLength(propertyNames);
+    jlong *nameArr = env->GetLongArrayElements(propertyNames, 0);
+    jint *typeArr = env->GetIntArrayElements(types, 0);
+    jdouble *numberArr = env->GetDoubleArrayElements(numbers, 0);
+    jlong *referenceArr = env->GetLongArrayElements(references, 0);
+
+    for (jsize i=0; i<len && !exception; i++) {
+        JSValueRef value;
+        switch (typeArr[i]) {
+            case kJSTypeNull:
+                value = JSValueMakeNull((JSContextRef)ctx);
+                break;
+            case kJSTypeBoolean:
+                value = JSValueMakeBoolean((JSContextRef)ctx, numberArr[i] != 0);
+                break;
+            case kJSTypeNumber:
+                value = JSValueMakeNumber((JSContextRef)ctx, numberArr[i]);
+                break;
+            case kJSTypeString: {
+                jstring jstr = (jstring) env->GetObjectArrayElement(strings, i);
+                const jchar *chars = env->GetStringChars(jstr, NULL);
+                JSStringRef string = JSStringCreateWithCharacters(chars, env->GetStringLength(jstr));
+                env->ReleaseStringChars(jstr, chars);
+                env->DeleteLocalRef(jstr);
+                value = JSValueMakeString((JSContextRef)ctx, string);
+                JSStringRelease(string);
+                break;
+            }
+            case kJSTypeObject:
+                value = (JSValueRef) referenceArr[i];
+                break;
+            default:
+                value = JSValueMakeUndefined((JSContextRef)ctx);
+                break;
+        }
+
+        JSObjectSetProperty((JSContextRef)ctx, (JSObjectRef) object, (JSStringRef)nameArr[i],
+            value, (JSPropertyAttributes)attributes, &exception);
+    }
+
+    env->ReleaseLongArrayElements(propertyNames, nameArr, JNI_ABORT);
+    env->ReleaseIntArrayElements(types, typeArr, JNI_ABORT);
+    env->ReleaseDoubleArrayElements(numbers, numberArr, JNI_ABORT);
+    env->ReleaseLongArrayElements(references, referenceArr, JNI_ABORT);
+
+    jfieldID fid = env->GetFieldID(ret , "exception", "J");
+    env->SetLongField( out, fid, (long) exception);
+
+    return out;
+}
+
 NATIVE(JSObject,jobject,getPropertyAtIndex) (PARAMS, jlong ctx, jlong object,
     jint propertyIndex) {
 
@@ -436,3 +563,83 @@ NATIVE(JSObject,jlongArray,getPropertyNames) (PARAMS,jlong propertyNameArray) {
 NATIVE(JSObject,void,releasePropertyNames) (PARAMS, jlong propertyNameArray) {
     JSPropertyNameArrayRelease((JSPropertyNameArrayRef)propertyNameArray);
 }
+
+NATIVE(JSTypedArray,jobject,getElements) (PARAMS, jlong ctx, jlong object, jint offset,
+    jdoubleArray values) {
+
+    JSValueRef exception = NULL;
+
+    jclass ret = env->FindClass("org/liquidplayer/webkit/javascriptcore/JSValue$JNIReturnObject");
+    jmethodID cid = env->GetMethodID(ret,"<init>","()V");
+    jobject out = env->NewObject(ret, cid);
+
+    jsize len = env->GetArrayLength(values);
+    jdouble *elements = env->GetDoubleArrayElements(values, 0);
+    for (jsize i=0; i<len && !exception; i++) {
+        JSValueRef value = JSObjectGetPropertyAtIndex((JSContextRef)ctx, (JSObjectRef)object,
+            (unsigned)(offset + i), &exception);
+        if (!exception)
+            elements[i] = JSValueToNumber((JSContextRef)ctx, value, &exception);
+    }
+    env->ReleaseDoubleArrayElements(values, elements, 0);
+
+    jfieldID fid = env->GetFieldID(ret , "exception", "J");
+    env->SetLongField( out, fid, (long) exception);
+
+    return out;
+}
+
+NATIVE(JSTypedArray,jobject,setElements) (PARAMS, jlong ctx, jlong object, jint offset,
+    jdoubleArray values) {
+
+    JSValueRef exception = NULL;
+
+    jclass ret = env->FindClass("org/liquidplayer/webkit/javascriptcore/JSValue$JNIReturnObject");
+    jmethodID cid = env->GetMethodID(ret,"<init>","()V");
+    jobject out = env->NewObject(ret, cid);
+
+    jsize len = env->GetArrayLength(values);
+    jdouble *elements = env->GetDoubleArrayElements(values, 0);
+    for (jsize i=0; i<len && !exception; i++) {
+        JSObjectSetPropertyAtIndex((JSContextRef)ctx, (JSObjectRef)object, (unsigned)(offset + i),
+            JSValueMakeNumber((JSContextRef)ctx, elements[i]), &exception);
+    }
+    env->ReleaseDoubleArrayElements(values, elements, JNI_ABORT);
+
+    jfieldID fid = env->GetFieldID(ret , "exception", "J");
+    env->SetLongField( out, fid, (long) exception);
+
+    return out;
+}
+
+NATIVE(JSArrayBuffer,jobject,copyBytes) (PARAMS, jlong ctx, jlong view, jobject buffer,
+    jboolean toBuffer) {
+
+    JSValueRef exception = NULL;
+
+    jclass ret = env->FindClass("org/liquidplayer/webkit/javascriptcore/JSValue$JNIReturnObject");
+    jmethodID cid = env->GetMethodID(ret,"<init>","()V");
+    jobject out = env->NewObject(ret, cid);
+
+    jbyte *bytes = (jbyte *) env->GetDirectBufferAddress(buffer);
+    jlong len = env->GetDirectBufferCapacity(buffer);
+    for (jlong i=0; bytes && i<len && !exception; i++) {
+        if (toBuffer) {
+            JSValueRef value = JSObjectGetPropertyAtIndex((JSContextRef)ctx, (JSObjectRef)view,
+                (unsigned)i, &exception);
+            if (!exception)
+                // Uint8Array elements are 0..255; narrow through an unsigned type, as a
+                // double above 127 converted straight to a signed char is undefined.
+                bytes[i] = (jbyte)(unsigned char)(int)
+                    JSValueToNumber((JSContextRef)ctx, value, &exception);
+        } else {
+            JSObjectSetPropertyAtIndex((JSContextRef)ctx, (JSObjectRef)view, (unsigned)i,
+                JSValueMakeNumber((JSContextRef)ctx, (unsigned char) bytes[i]), &exception);
+        }
+    }
+
+    jfieldID fid = env->GetFieldID(ret , "exception", "J");
+    env->SetLongField( out, fid, (long) exception);
+
+    return out;
+}
@@ -3,6 +3,8 @@ package org.liquidplayer.webkit.javascriptcore;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+
 import static org.junit.Assert.*;
 import static org.hamcrest.Matchers.*;
 
@@ -67,6 +69,27 @@ public class JSArrayBufferTest {
         assertThat(new JSInt32Array(buf3).get(0),is(42));
     }
 
+    @Test
+    public void testByteBuffer() throws Exception {
+        ByteBuffer src = ByteBuffer.allocateDirect(4);
+        src.put(new byte[] {1,2,(byte)0xfe,(byte)0xff}).flip();
+        JSArrayBuffer buffer = new JSArrayBuffer(context,src);
+        assertThat(buffer.byteLength(),is(4));
+        assertThat(src.position(),is(0));
+        JSUint8Array u8 = new JSUint8Array(buffer);
+        assertThat(u8.get(2),is((byte)0xfe));
+
+        u8.set(0,(byte)42);
+        ByteBuffer dst = buffer.toByteBuffer();
+        assertTrue(dst.isDirect());
+        assertThat(dst.capacity(),is(4));
+        assertThat(dst.get(0),is((byte)42));
+        assertThat(dst.get(3),is((byte)0xff));
+
+        JSArrayBuffer heap = new JSArrayBuffer(context,ByteBuffer.wrap(new byte[] {7,8,9}));
+        assertThat(heap.toByteBuffer().get(2),is((byte)9));
+    }
+
     @org.junit.After
     public void shutDown() {
         Runtime.getRuntime().gc();
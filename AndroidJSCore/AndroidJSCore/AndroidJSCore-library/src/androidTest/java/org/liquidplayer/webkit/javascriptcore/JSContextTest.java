@@ -183,13 +183,95 @@ public class JSContextTest {
         if (thrownInMainThread != null) throw thrownInMainThread;
     }
 
+    private Thread jsThread = null;
+    private Thread jsThreadFromMain = null;
+
+    private void defineWhichThread(JSContext context) {
+        context.property("whichThread", new JSFunction(context,"whichThread") {
+            @SuppressWarnings("unused")
+            public void whichThread() {
+                if (jsThread == null) jsThread = Thread.currentThread();
+                else jsThreadFromMain = Thread.currentThread();
+            }
+        });
+    }
+
+    @org.junit.Test
+    public void testJSThreadAffinity() throws Exception {
+        final JSContext context = new JSContext();
+        defineWhichThread(context);
+        context.evaluateScript("whichThread()");
+        assertNotNull(jsThread);
+        assertNotEquals(jsThread, Thread.currentThread());
+
+        Handler handler = new Handler(Looper.getMainLooper());
+        final Semaphore mutex = new Semaphore(0);
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    context.evaluateScript("whichThread()");
+                } finally {
+                    mutex.release();
+                }
+            }
+        });
+        mutex.acquireUninterruptibly();
+        assertEquals(jsThread, jsThreadFromMain);
+
+        JSContextGroup contextGroup = new JSContextGroup();
+        JSContext context1 = new JSContext(contextGroup);
+        JSContext context2 = new JSContext(contextGroup);
+        jsThread = null;
+        jsThreadFromMain = null;
+        defineWhichThread(context1);
+        defineWhichThread(context2);
+        context1.evaluateScript("whichThread()");
+        context2.evaluateScript("whichThread()");
+        assertEquals(jsThread, jsThreadFromMain);
+    }
+
     @Test
     public void testDeadReferences() throws Exception {
         JSContext context = new JSContext();
+        long reclaimed = JSContext.getReclaimedReferenceCount();
         for (int i=0; i<200; i++) {
             new JSValue(context);
         }
-        assertTrue(true);
+        // Collection is asynchronous, so keep nudging both collectors until the released
+        // references are counted, or give up after ten seconds.
+        long deadline = System.currentTimeMillis() + 10000;
+        while (JSContext.getReclaimedReferenceCount() <= reclaimed &&
+                System.currentTimeMillis() < deadline) {
+            Runtime.getRuntime().gc();
+            context.garbageCollect();
+            Thread.sleep(50);
+        }
+        assertTrue(JSContext.getReclaimedReferenceCount() > reclaimed);
+    }
+
+    @Test
+    public void testFunctionCache() throws Exception {
+        JSContext context = new JSContext();
+        JSFunction helper = context.helperFunction("_add",new String[] {"a","b"},"return a+b;");
+        assertTrue(helper == context.helperFunction("_add",new String[] {"a","b"},"return a+b;"));
+        assertThat(helper.call(null,1,2).toNumber().intValue(),is(3));
+        // The same name with a different body is a different function.
+        JSFunction other = context.helperFunction("_add",new String[] {"a","b"},"return a*b;");
+        assertTrue(helper != other);
+        assertThat(other.call(null,2,3).toNumber().intValue(),is(6));
+
+        JSFunction push = context.prototypeMethod("Array","push");
+        assertTrue(push == context.prototypeMethod("Array","push"));
+        assertTrue(context.staticMethod("Array","isArray") ==
+                context.staticMethod("Array","isArray"));
+
+        JSInt32Array a1 = new JSInt32Array(context,4);
+        JSInt32Array a2 = new JSInt32Array(context,4);
+        a1.set(0,1);
+        a2.set(0,2);
+        assertThat(a1.get(0),is(1));
+        assertThat(a2.get(0),is(2));
     }
 
     @org.junit.After
@@ -279,4 +279,28 @@ public class JSFloat32ArrayTest {
             assertThat(exception,is(true));
         }
     }
+
+    @Test
+    public void testJSFloat32ArrayBulkTransfer() throws Exception {
+        JSFloat32Array array = new JSFloat32Array(context,8);
+        array.set(new float[] {1.5f,2.5f,3.5f}, 2);
+        assertThat(array.get(1),is(0f));
+        assertThat(array.get(2),is(1.5f));
+        assertThat(array.get(4),is(3.5f));
+
+        float[] dst = new float[4];
+        array.get(dst, 1);
+        assertThat(dst[0],is(0f));
+        assertThat(dst[1],is(1.5f));
+        assertThat(dst[3],is(3.5f));
+
+        boolean exception = false;
+        try {
+            array.get(new float[4], 6);
+        } catch (IndexOutOfBoundsException e) {
+            exception = true;
+        } finally {
+            assertThat(exception,is(true));
+        }
+    }
 }
\ No newline at end of file
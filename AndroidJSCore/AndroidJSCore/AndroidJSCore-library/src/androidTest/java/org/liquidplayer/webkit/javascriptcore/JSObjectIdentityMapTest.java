@@ -0,0 +1,223 @@
+package org.liquidplayer.webkit.javascriptcore;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JSObjectIdentityMapTest {
+
+    // Mirrors JSObjectIdentityMap.hash() so that keys can be chosen to collide.
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /**
+     * Finds 'count' keys which fall in the same segment as 'segmentKey' and whose home slot
+     * in a fresh (16 slot) segment table is 'slot'.
+     */
+    private static long[] collidingKeys(long segmentKey, int slot, int count) {
+        int segment = (hash(segmentKey) >>> 28) & 15;
+        List<Long> found = new ArrayList<>();
+        for (long key = 1; found.size() < count; key++) {
+            int h = hash(key);
+            if (((h >>> 28) & 15) == segment && (h & 15) == slot && key != segmentKey) {
+                found.add(key);
+            }
+        }
+        long[] keys = new long[count];
+        for (int i=0; i<count; i++) keys[i] = found.get(i);
+        return keys;
+    }
+
+    private static void putTemporary(JSObjectIdentityMap map, long key, JSContext context) {
+        map.put(key, new JSObject(context));
+    }
+
+    private static void awaitCleared(JSObjectIdentityMap map, long key) throws Exception {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (map.get(key) != null && System.currentTimeMillis() < deadline) {
+            Runtime.getRuntime().gc();
+            Thread.sleep(50);
+        }
+        assertNull(map.get(key));
+    }
+
+    @Test
+    public void testCollisions() throws Exception {
+        JSContext context = new JSContext();
+        JSObjectIdentityMap map = new JSObjectIdentityMap();
+        long [] keys = collidingKeys(1, 5, 4);
+        JSObject [] objects = new JSObject[keys.length];
+        for (int i=0; i<keys.length; i++) {
+            objects[i] = new JSObject(context);
+            map.put(keys[i], objects[i]);
+        }
+        for (int i=0; i<keys.length; i++) {
+            assertTrue(map.get(keys[i]) == objects[i]);
+        }
+        // Replacing an entry in the middle of the chain does not disturb its neighbours
+        JSObject replacement = new JSObject(context);
+        map.put(keys[1], replacement);
+        assertTrue(map.get(keys[0]) == objects[0]);
+        assertTrue(map.get(keys[1]) == replacement);
+        assertTrue(map.get(keys[2]) == objects[2]);
+        assertTrue(map.get(keys[3]) == objects[3]);
+        // A key which was never added is not found, even though its probe sequence is full
+        assertNull(map.get(collidingKeys(1, 5, 5)[4]));
+    }
+
+    @Test
+    public void testWraparound() throws Exception {
+        JSContext context = new JSContext();
+        JSObjectIdentityMap map = new JSObjectIdentityMap();
+        // Three keys homed on the last slot occupy slots 15, 0 and 1; a key homed on
+        // slot 0 is pushed along to slot 2.
+        long [] last = collidingKeys(1, 15, 3);
+        long first = collidingKeys(1, 0, 1)[0];
+        JSObject [] objects = new JSObject[last.length];
+        for (int i=0; i<last.length; i++) {
+            objects[i] = new JSObject(context);
+            map.put(last[i], objects[i]);
+        }
+        JSObject firstObject = new JSObject(context);
+        map.put(first, firstObject);
+        for (int i=0; i<last.length; i++) {
+            assertTrue(map.get(last[i]) == objects[i]);
+        }
+        assertTrue(map.get(first) == firstObject);
+
+        // Removing the entry at slot 15 shifts the rest of the chain back across the end
+        // of the table
+        map.remove(last[0]);
+        assertNull(map.get(last[0]));
+        assertTrue(map.get(last[1]) == objects[1]);
+        assertTrue(map.get(last[2]) == objects[2]);
+        assertTrue(map.get(first) == firstObject);
+
+        // Removing the entry which wrapped to slot 0
+        map.remove(last[1]);
+        assertNull(map.get(last[1]));
+        assertTrue(map.get(last[2]) == objects[2]);
+        assertTrue(map.get(first) == firstObject);
+
+        // Removed keys can be added again
+        map.put(last[0], objects[0]);
+        assertTrue(map.get(last[0]) == objects[0]);
+        assertTrue(map.get(last[2]) == objects[2]);
+        assertTrue(map.get(first) == firstObject);
+    }
+
+    @Test
+    public void testRemoveInProbeChain() throws Exception {
+        JSContext context = new JSContext();
+        JSObjectIdentityMap map = new JSObjectIdentityMap();
+        // Slots 5, 6 and 7 hold keys homed on slot 5; the key homed on slot 6 lands on 8
+        long [] chain = collidingKeys(1, 5, 3);
+        long next = collidingKeys(1, 6, 1)[0];
+        JSObject [] objects = new JSObject[chain.length];
+        for (int i=0; i<chain.length; i++) {
+            objects[i] = new JSObject(context);
+            map.put(chain[i], objects[i]);
+        }
+        JSObject nextObject = new JSObject(context);
+        map.put(next, nextObject);
+
+        map.remove(chain[1]);
+        assertNull(map.get(chain[1]));
+        assertTrue(map.get(chain[0]) == objects[0]);
+        assertTrue(map.get(chain[2]) == objects[2]);
+        assertTrue(map.get(next) == nextObject);
+
+        // Removing an absent key, or removing twice, changes nothing
+        map.remove(chain[1]);
+        map.remove(collidingKeys(1, 5, 4)[3]);
+        assertTrue(map.get(chain[0]) == objects[0]);
+        assertTrue(map.get(chain[2]) == objects[2]);
+        assertTrue(map.get(next) == nextObject);
+
+        map.remove(chain[0]);
+        assertNull(map.get(chain[0]));
+        assertTrue(map.get(chain[2]) == objects[2]);
+        assertTrue(map.get(next) == nextObject);
+
+        map.remove(chain[2]);
+        map.remove(next);
+        assertNull(map.get(chain[2]));
+        assertNull(map.get(next));
+    }
+
+    @Test
+    public void testRemoveIfCleared() throws Exception {
+        JSContext context = new JSContext();
+        JSObjectIdentityMap map = new JSObjectIdentityMap();
+        long [] chain = collidingKeys(1, 9, 3);
+        JSObject head = new JSObject(context);
+        JSObject tail = new JSObject(context);
+        map.put(chain[0], head);
+        putTemporary(map, chain[1], context);
+        map.put(chain[2], tail);
+
+        // A live entry is left in place
+        map.removeIfCleared(chain[0]);
+        assertTrue(map.get(chain[0]) == head);
+
+        // Once collected, the middle entry reads as absent while its slot is still occupied
+        awaitCleared(map, chain[1]);
+        assertTrue(map.get(chain[0]) == head);
+        assertTrue(map.get(chain[2]) == tail);
+
+        // Removing it shifts the tail of the chain back
+        map.removeIfCleared(chain[1]);
+        assertNull(map.get(chain[1]));
+        assertTrue(map.get(chain[0]) == head);
+        assertTrue(map.get(chain[2]) == tail);
+
+        // A live object registered again under a cleared key survives removeIfCleared
+        JSObject again = new JSObject(context);
+        map.put(chain[1], again);
+        map.removeIfCleared(chain[1]);
+        assertTrue(map.get(chain[1]) == again);
+        map.remove(chain[1]);
+        assertNull(map.get(chain[1]));
+        assertTrue(map.get(chain[2]) == tail);
+    }
+
+    @Test
+    public void testClearedEntriesDroppedOnResize() throws Exception {
+        JSContext context = new JSContext();
+        JSObjectIdentityMap map = new JSObjectIdentityMap();
+        long [] all = collidingKeys(1, 3, 80);
+        long [] keys = Arrays.copyOfRange(all, 0, 40);
+        long [] more = Arrays.copyOfRange(all, 40, 80);
+        JSObject keep = new JSObject(context);
+        map.put(keys[0], keep);
+        for (int i=1; i<keys.length; i++) {
+            putTemporary(map, keys[i], context);
+        }
+        for (int i=1; i<keys.length; i++) {
+            awaitCleared(map, keys[i]);
+        }
+        // Adding more keys forces a rehash, which must keep the live entry reachable
+        JSObject [] objects = new JSObject[more.length];
+        for (int i=0; i<more.length; i++) {
+            objects[i] = new JSObject(context);
+            map.put(more[i], objects[i]);
+        }
+        assertTrue(map.get(keys[0]) == keep);
+        for (int i=0; i<more.length; i++) {
+            assertTrue(map.get(more[i]) == objects[i]);
+        }
+    }
+
+    @org.junit.After
+    public void shutDown() {
+        Runtime.getRuntime().gc();
+    }
+}
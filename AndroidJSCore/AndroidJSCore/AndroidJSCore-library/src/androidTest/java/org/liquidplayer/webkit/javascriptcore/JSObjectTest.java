@@ -258,6 +258,44 @@ public class JSObjectTest {
         assertFalse(names.contains("noenum"));
     }
 
+    @org.junit.Test
+    public void testJSObjectBatchProperties() throws Exception {
+        JSContext context = new JSContext();
+        JSObject obj = context.evaluateScript(
+                "({num: 5, str: 'foo', bool: true, nul: null, obj: {x: 1}})").toObject();
+
+        Object[] values = obj.properties("num","str","bool","nul","obj","undef");
+        assertThat(values.length,is(6));
+        assertEquals(values[0],5.0);
+        assertEquals(values[1],"foo");
+        assertEquals(values[2],true);
+        assertNull(values[3]);
+        assertTrue(values[4] instanceof JSObject);
+        assertThat(((JSObject)values[4]).property("x").toNumber(),is(1.0));
+        assertNull(values[5]);
+
+        Map<String,Object> map = new HashMap<>();
+        map.put("a",1);
+        map.put("b","bar");
+        map.put("c",false);
+        map.put("d",null);
+        map.put("e",Arrays.asList(1,2,3));
+        map.put("f",obj);
+        JSObject target = new JSObject(context);
+        target.setProperties(map);
+        assertThat(target.property("a").toNumber(),is(1.0));
+        assertThat(target.property("b").toString(),is("bar"));
+        assertFalse(target.property("c").toBoolean());
+        assertTrue(target.property("d").isNull());
+        assertTrue(target.property("e").isArray());
+        assertTrue(target.property("f").isStrictEqual(obj));
+
+        JSObject readOnly = new JSObject(context);
+        readOnly.setProperties(map, JSObject.JSPropertyAttributeReadOnly);
+        readOnly.property("a",2);
+        assertThat(readOnly.property("a").toNumber(),is(1.0));
+    }
+
     @org.junit.Test
     public void testJSObjectTesters() throws Exception {
         JSContext context = new JSContext();
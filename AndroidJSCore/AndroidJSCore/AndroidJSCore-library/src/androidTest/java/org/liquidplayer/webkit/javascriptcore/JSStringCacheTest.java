@@ -0,0 +1,66 @@
+package org.liquidplayer.webkit.javascriptcore;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.*;
+
+public class JSStringCacheTest {
+
+    @Test
+    public void testInternWithinGroup() throws Exception {
+        JSContextGroup group = new JSContextGroup();
+        JSContext context1 = new JSContext(group);
+        JSContext context2 = new JSContext(group);
+        JSContext other = new JSContext();
+
+        JSValue.JSString name = context1.internString("interned");
+        assertTrue(name == context1.internString("interned"));
+        assertTrue(name == context2.internString("interned"));
+        assertFalse(name == other.internString("interned"));
+        assertEquals(name.toString(),"interned");
+
+        context1.property("interned",42);
+        assertThat(context1.property("interned").toNumber().intValue(),is(42));
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        JSValue.JSStringCache cache = new JSValue.JSStringCache(4);
+        JSValue.JSString first = cache.intern("s0");
+        for (int i=0; i<10; i++) {
+            assertEquals(cache.intern("s" + i).toString(),"s" + i);
+        }
+        // "s0" has been evicted, so a new string is created, with the same contents.
+        JSValue.JSString again = cache.intern("s0");
+        assertFalse(first == again);
+        assertEquals(again.toString(),"s0");
+        // Recently used entries are still cached.
+        assertTrue(cache.intern("s9") == cache.intern("s9"));
+    }
+
+    @Test
+    public void testEvictedStringsAreReclaimed() throws Exception {
+        JSContext context = new JSContext();
+        long reclaimed = JSContext.getReclaimedReferenceCount();
+        JSValue.JSStringCache cache = new JSValue.JSStringCache(8);
+        for (int i=0; i<200; i++) {
+            cache.intern("evicted" + i);
+        }
+        // Evicted strings are released by the reference collection on the JS thread.
+        long deadline = System.currentTimeMillis() + 10000;
+        while (JSContext.getReclaimedReferenceCount() <= reclaimed &&
+                System.currentTimeMillis() < deadline) {
+            Runtime.getRuntime().gc();
+            context.garbageCollect();
+            Thread.sleep(50);
+        }
+        assertTrue(JSContext.getReclaimedReferenceCount() > reclaimed);
+        assertEquals(cache.intern("evicted199").toString(),"evicted199");
+    }
+
+    @org.junit.After
+    public void shutDown() {
+        Runtime.getRuntime().gc();
+    }
+}
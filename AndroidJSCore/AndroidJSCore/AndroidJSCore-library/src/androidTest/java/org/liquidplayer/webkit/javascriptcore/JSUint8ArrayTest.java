@@ -279,4 +279,17 @@ public class JSUint8ArrayTest {
             assertThat(exception,is(true));
         }
     }
+
+    @Test
+    public void testJSUint8ArrayBulkTransfer() throws Exception {
+        JSUint8Array array = new JSUint8Array(context,4);
+        array.set(new byte[] {(byte)0xff,1,2,3}, 0);
+        assertThat(context.evaluateScript("(function(a){return a[0];})").toFunction()
+                .call(null,array).toNumber().intValue(),is(255));
+
+        byte[] dst = new byte[2];
+        array.get(dst, 2);
+        assertThat(dst[0],is((byte)2));
+        assertThat(dst[1],is((byte)3));
+    }
 }
\ No newline at end of file
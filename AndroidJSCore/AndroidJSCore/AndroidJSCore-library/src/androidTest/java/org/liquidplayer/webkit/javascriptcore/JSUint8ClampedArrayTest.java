@@ -279,4 +279,20 @@ public class JSUint8ClampedArrayTest {
             assertThat(exception,is(true));
         }
     }
+
+    @Test
+    public void testJSUint8ClampedArrayBulkTransfer() throws Exception {
+        JSUint8ClampedArray array = new JSUint8ClampedArray(context,4);
+        array.set(new byte[] {(byte)0xff,(byte)0x80,2,3}, 0);
+        JSFunction at = context.evaluateScript("(function(a,i){return a[i];})").toFunction();
+        assertThat(at.call(null,array,0).toNumber().intValue(),is(255));
+        assertThat(at.call(null,array,1).toNumber().intValue(),is(128));
+
+        byte[] dst = new byte[4];
+        array.get(dst, 0);
+        assertThat(dst[0],is((byte)0xff));
+        assertThat(dst[1],is((byte)0x80));
+        assertThat(dst[2],is((byte)2));
+        assertThat(dst[3],is((byte)3));
+    }
 }
\ No newline at end of file
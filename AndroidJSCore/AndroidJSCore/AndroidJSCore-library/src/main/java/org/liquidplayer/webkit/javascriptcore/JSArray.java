@@ -44,6 +44,9 @@ import java.util.Map;
 /**
  * A convenience class for handling JavaScript arrays.  Implements java.util.List interface for
  * simple integration with Java methods.
+ * <p>
+ * Methods such as push() and slice() call the built-in Array.prototype method, so a method
+ * overridden on the array itself or on its prototype chain is not used.
  *
  */
 public class JSArray<T> extends JSBaseArray<T> {
@@ -213,7 +216,7 @@ public class JSArray<T> extends JSBaseArray<T> {
      */
     @SuppressWarnings("unchecked")
     public static JSArray<JSValue> from(JSContext ctx, Object arrayLike, JSFunction mapFn, JSObject thiz) {
-        JSFunction from = ctx.property("Array").toObject().property("from").toFunction();
+        JSFunction from = ctx.staticMethod("Array","from");
         return (JSArray) from.call(null,arrayLike,mapFn,thiz).toJSArray();
     }
     /**
@@ -227,7 +230,7 @@ public class JSArray<T> extends JSBaseArray<T> {
      */
     @SuppressWarnings("unchecked")
     public static JSArray<JSValue> from(JSContext ctx, Object arrayLike, JSFunction mapFn) {
-        JSFunction from = ctx.property("Array").toObject().property("from").toFunction();
+        JSFunction from = ctx.staticMethod("Array","from");
         return (JSArray) from.call(null,arrayLike,mapFn).toJSArray();
     }
     /**
@@ -240,7 +243,7 @@ public class JSArray<T> extends JSBaseArray<T> {
      */
     @SuppressWarnings("unchecked")
     public static JSArray<JSValue> from(JSContext ctx, Object arrayLike) {
-        JSFunction from = ctx.property("Array").toObject().property("from").toFunction();
+        JSFunction from = ctx.staticMethod("Array","from");
         return (JSArray) from.call(null,arrayLike).toJSArray();
     }
     /**
@@ -255,7 +258,7 @@ public class JSArray<T> extends JSBaseArray<T> {
     @SuppressWarnings("unchecked")
     public static JSArray<JSValue> from(JSContext ctx, Object arrayLike,
                                         final MapCallback<JSValue> mapFn) {
-        JSFunction from = ctx.property("Array").toObject().property("from").toFunction();
+        JSFunction from = ctx.staticMethod("Array","from");
         return (JSArray)  from.call(null,arrayLike,new JSFunction(ctx,"_callback") {
             @SuppressWarnings("unused")
             public JSValue _callback(JSValue currentValue, int index, JSArray array) {
@@ -273,7 +276,7 @@ public class JSArray<T> extends JSBaseArray<T> {
      */
     public static boolean isArray(JSValue value) {
         if (value == null) return false;
-        JSFunction isArray = value.getContext().property("Array").toObject().property("isArray").toFunction();
+        JSFunction isArray = value.getContext().staticMethod("Array","isArray");
         return isArray.call(null,value).toBoolean();
     }
 
@@ -287,7 +290,7 @@ public class JSArray<T> extends JSBaseArray<T> {
      */
     @SuppressWarnings("unchecked")
     public static JSArray<JSValue> of(JSContext ctx, Object ... params) {
-        JSFunction of = ctx.property("Array").toObject().property("of").toFunction();
+        JSFunction of = ctx.staticMethod("Array","of");
         return (JSArray) of.apply(null,params).toJSArray();
     }
 
@@ -300,7 +303,7 @@ public class JSArray<T> extends JSBaseArray<T> {
      */
     @SuppressWarnings("unchecked")
     public JSArray<T> concat(Object ... params) {
-        JSArray concat = (JSArray) property("concat").toFunction().apply(this,params).toJSArray();
+        JSArray concat = (JSArray) context.prototypeMethod("Array","concat").apply(this,params).toJSArray();
         concat.mType = mType;
         return concat;
     }
@@ -313,7 +316,7 @@ public class JSArray<T> extends JSBaseArray<T> {
      */
     @SuppressWarnings("unchecked")
     public T pop() {
-        return (T) property("pop").toFunction().call(this).toJavaObject(mType);
+        return (T) context.prototypeMethod("Array","pop").call(this).toJavaObject(mType);
     }
 
     /**
@@ -325,7 +328,7 @@ public class JSArray<T> extends JSBaseArray<T> {
      */
     @SuppressWarnings("unchecked")
     public int push(T ... elements) {
-        return property("push").toFunction().apply(this,elements).toNumber().intValue();
+        return context.prototypeMethod("Array","push").apply(this,elements).toNumber().intValue();
     }
 
     /**
@@ -336,7 +339,7 @@ public class JSArray<T> extends JSBaseArray<T> {
      */
     @SuppressWarnings("unchecked")
     public T shift() {
-        JSValue shifted = property("shift").toFunction().call(this);
+        JSValue shifted = context.prototypeMethod("Array","shift").call(this);
         if (shifted.isUndefined()) return null;
         else return (T) shifted.toJavaObject(mType);
     }
@@ -355,7 +358,7 @@ public class JSArray<T> extends JSBaseArray<T> {
         ArrayList<Object> args = new ArrayList<>(Arrays.asList((Object[])elements));
         args.add(0,deleteCount);
         args.add(0,start);
-        JSArray<T> splice = (JSArray<T>)(property("splice").toFunction().apply(this,args.toArray()).toJSArray());
+        JSArray<T> splice = (JSArray<T>)(context.prototypeMethod("Array","splice").apply(this,args.toArray()).toJSArray());
         splice.mType = mType;
         return splice;
     }
@@ -369,7 +372,7 @@ public class JSArray<T> extends JSBaseArray<T> {
      * @return a localized string representation of the array
      */
     public String toLocaleString() {
-        return property("toLocaleString").toFunction().call(this).toString();
+        return context.prototypeMethod("Array","toLocaleString").call(this).toString();
     }
 
     /**
@@ -381,7 +384,7 @@ public class JSArray<T> extends JSBaseArray<T> {
      */
     @SuppressWarnings("unchecked")
     public int unshift(T ... elements) {
-        return property("unshift").toFunction().apply(this,elements).toNumber().intValue();
+        return context.prototypeMethod("Array","unshift").apply(this,elements).toNumber().intValue();
     }
 
     /** JavaScript methods **/
@@ -455,10 +458,10 @@ public class JSArray<T> extends JSBaseArray<T> {
     }
 
     protected JSValue each(JSFunction callback, JSObject thiz, String each) {
-        return property(each).toFunction().call(this,callback,thiz);
+        return context.prototypeMethod("Array",each).call(this,callback,thiz);
     }
     protected JSValue each(final EachBooleanCallback<T> callback, String each) {
-        return property(each).toFunction().call(this,new JSFunction(context,"_callback") {
+        return context.prototypeMethod("Array",each).call(this,new JSFunction(context,"_callback") {
             @SuppressWarnings("unchecked,unused")
             public boolean _callback(T currentValue, int index, JSArray array) {
                 return callback.callback((T)((JSValue)currentValue).toJavaObject(mType),index,array);
@@ -466,7 +469,7 @@ public class JSArray<T> extends JSBaseArray<T> {
         });
     }
     protected JSValue each(final ForEachCallback<T> callback, String each) {
-        return property(each).toFunction().call(this,new JSFunction(context,"_callback") {
+        return context.prototypeMethod("Array",each).call(this,new JSFunction(context,"_callback") {
             @SuppressWarnings("unchecked,unused")
             public void _callback(T currentValue, int index, JSArray array) {
                 callback.callback((T)((JSValue)currentValue).toJavaObject(mType),index,array);
@@ -474,7 +477,7 @@ public class JSArray<T> extends JSBaseArray<T> {
         });
     }
     protected JSValue each(final ReduceCallback callback, String each, Object initialValue) {
-        return property(each).toFunction().call(this,new JSFunction(context,"_callback") {
+        return context.prototypeMethod("Array",each).call(this,new JSFunction(context,"_callback") {
             @SuppressWarnings("unused")
             public JSValue _callback(JSValue previousValue, JSValue currentValue, int index,
                                      JSArray<JSValue> array) {
@@ -513,7 +516,7 @@ public class JSArray<T> extends JSBaseArray<T> {
      * @return an entry iterator
      */
     public EntriesIterator<T> entries() {
-        return new EntriesIterator<>(property("entries").toFunction().call(this).toObject());
+        return new EntriesIterator<>(context.prototypeMethod("Array","entries").call(this).toObject());
     }
 
     /**
@@ -652,7 +655,7 @@ public class JSArray<T> extends JSBaseArray<T> {
      * @return true if the element exists in the array, false otherwise
      */
     public boolean includes(T element, int fromIndex) {
-        return property("includes").toFunction().call(this,element,fromIndex).toBoolean();
+        return context.prototypeMethod("Array","includes").call(this,element,fromIndex).toBoolean();
     }
     /**
      * JavaScript Array.prototype.includes(), see:
@@ -674,7 +677,7 @@ public class JSArray<T> extends JSBaseArray<T> {
      * @return index of the first instance of 'element', -1 if not found
      */
     public int indexOf(T element, int fromIndex) {
-        return property("indexOf").toFunction().call(this,element,fromIndex).toNumber().intValue();
+        return context.prototypeMethod("Array","indexOf").call(this,element,fromIndex).toNumber().intValue();
     }
 
     /**
@@ -685,7 +688,7 @@ public class JSArray<T> extends JSBaseArray<T> {
      * @return a string representation of the joined array
      */
     public String join(String separator) {
-        return property("join").toFunction().call(this,separator).toString();
+        return context.prototypeMethod("Array","join").call(this,separator).toString();
     }
     /**
      * JavaScript Array.prototype.join(), see:
@@ -694,7 +697,7 @@ public class JSArray<T> extends JSBaseArray<T> {
      * @return a string representation of the joined array with a comma separator
      */
     public String join() {
-        return property("join").toFunction().call(this).toString();
+        return context.prototypeMethod("Array","join").call(this).toString();
     }
 
     /**
@@ -729,7 +732,7 @@ public class JSArray<T> extends JSBaseArray<T> {
      * @return An array index iterator
      */
     public KeysIterator keys() {
-        return new KeysIterator(property("keys").toFunction().call(this).toObject());
+        return new KeysIterator(context.prototypeMethod("Array","keys").call(this).toObject());
     }
 
     /**
@@ -741,7 +744,7 @@ public class JSArray<T> extends JSBaseArray<T> {
      * @return index of the last instance of 'element', -1 if not found
      */
     public int lastIndexOf(T element, int fromIndex) {
-        return property("lastIndexOf").toFunction().call(this,element,fromIndex).toNumber().intValue();
+        return context.prototypeMethod("Array","lastIndexOf").call(this,element,fromIndex).toNumber().intValue();
     }
 
     /**
@@ -753,7 +756,7 @@ public class JSArray<T> extends JSBaseArray<T> {
      * @return A reduction of the mapped array
      */
     public JSValue reduce(JSFunction callback, Object initialValue) {
-        return property("reduce").toFunction().call(this,callback,initialValue);
+        return context.prototypeMethod("Array","reduce").call(this,callback,initialValue);
     }
     /**
      * JavaScript Array.prototype.reduce(), see:
@@ -763,7 +766,7 @@ public class JSArray<T> extends JSBaseArray<T> {
      * @return A reduction of the mapped array
      */
     public JSValue reduce(JSFunction callback) {
-        return property("reduce").toFunction().call(this,callback);
+        return context.prototypeMethod("Array","reduce").call(this,callback);
     }
     /**
      * JavaScript Array.prototype.reduce(), see:
@@ -796,7 +799,7 @@ public class JSArray<T> extends JSBaseArray<T> {
      * @return A reduction of the mapped array
      */
     public JSValue reduceRight(JSFunction callback, Object initialValue) {
-        return property("reduceRight").toFunction().call(this,callback,initialValue);
+        return context.prototypeMethod("Array","reduceRight").call(this,callback,initialValue);
     }
     /**
      * JavaScript Array.prototype.reduceRight(), see:
@@ -806,7 +809,7 @@ public class JSArray<T> extends JSBaseArray<T> {
      * @return A reduction of the mapped array
      */
     public JSValue reduceRight(JSFunction callback) {
-        return property("reduceRight").toFunction().call(this,callback);
+        return context.prototypeMethod("Array","reduceRight").call(this,callback);
     }
     /**
      * JavaScript Array.prototype.reduceRight(), see:
@@ -891,7 +894,7 @@ public class JSArray<T> extends JSBaseArray<T> {
      * @return an array value iterator
      */
     public ValuesIterator<T> values() {
-        return new ValuesIterator<>(property("values").toFunction().call(this).toObject());
+        return new ValuesIterator<>(context.prototypeMethod("Array","values").call(this).toObject());
     }
 
     /**
@@ -905,7 +908,7 @@ public class JSArray<T> extends JSBaseArray<T> {
      */
     @SuppressWarnings("unchecked")
     public JSArray<T> copyWithin(int target, int start, int end) {
-        return (JSArray<T>)property("copyWithin").toFunction().call(this,target,start,end).toJSArray();
+        return (JSArray<T>)context.prototypeMethod("Array","copyWithin").call(this,target,start,end).toJSArray();
     }
     /**
      * JavaScript Array.prototype.copyWithin(), see:
@@ -940,7 +943,7 @@ public class JSArray<T> extends JSBaseArray<T> {
      */
     @SuppressWarnings("unchecked")
     public JSArray<T> fill(T value, int start, int end) {
-        return (JSArray<T>)(property("fill").toFunction().call(this,value,start,end).toJSArray());
+        return (JSArray<T>)(context.prototypeMethod("Array","fill").call(this,value,start,end).toJSArray());
     }
     /**
      * JavaScript Array.prototype.fill(), see:
@@ -1034,7 +1037,7 @@ public class JSArray<T> extends JSBaseArray<T> {
      */
     @SuppressWarnings("unchecked")
     public JSArray<JSValue> map(final MapCallback<T> callback) {
-        return (JSArray<JSValue>)property("map").toFunction().call(this,new JSFunction(context,"_callback") {
+        return (JSArray<JSValue>)context.prototypeMethod("Array","map").call(this,new JSFunction(context,"_callback") {
             @SuppressWarnings("unchecked,unused")
             public JSValue _callback(T currentValue, int index, JSArray<T> array) {
                 return callback.callback((T)((JSValue)currentValue).toJavaObject(mType),index,array);
@@ -1050,7 +1053,7 @@ public class JSArray<T> extends JSBaseArray<T> {
      */
     @SuppressWarnings("unchecked")
     public JSArray<T> reverse() {
-        return (JSArray<T>)(property("reverse").toFunction().call(this).toJSArray());
+        return (JSArray<T>)(context.prototypeMethod("Array","reverse").call(this).toJSArray());
     }
 
     /**
@@ -1063,7 +1066,7 @@ public class JSArray<T> extends JSBaseArray<T> {
      */
     @SuppressWarnings("unchecked")
     public JSArray<T> slice(int begin, int end) {
-        return (JSArray<T>)property("slice").toFunction().call(this,begin,end).toJSArray();
+        return (JSArray<T>)context.prototypeMethod("Array","slice").call(this,begin,end).toJSArray();
     }
     /**
      * JavaScript Array.prototype.slice(), see:
@@ -1074,7 +1077,7 @@ public class JSArray<T> extends JSBaseArray<T> {
      */
     @SuppressWarnings("unchecked")
     public JSArray<T> slice(int begin) {
-        return (JSArray<T>)property("slice").toFunction().call(this,begin).toJSArray();
+        return (JSArray<T>)context.prototypeMethod("Array","slice").call(this,begin).toJSArray();
     }
     /**
      * JavaScript Array.prototype.slice(), see:
@@ -1084,7 +1087,7 @@ public class JSArray<T> extends JSBaseArray<T> {
      */
     @SuppressWarnings("unchecked")
     public JSArray<T> slice() {
-        return (JSArray<T>)property("slice").toFunction().call(this).toJSArray();
+        return (JSArray<T>)context.prototypeMethod("Array","slice").call(this).toJSArray();
     }
 
     /**
@@ -1096,7 +1099,7 @@ public class JSArray<T> extends JSBaseArray<T> {
      */
     @SuppressWarnings("unchecked")
     public JSArray<T> sort(JSFunction compare) {
-        return (JSArray<T>)(property("sort").toFunction().call(this,compare).toJSArray());
+        return (JSArray<T>)(context.prototypeMethod("Array","sort").call(this,compare).toJSArray());
     }
     /**
      * JavaScript Array.prototype.sort(), see:
@@ -1107,7 +1110,7 @@ public class JSArray<T> extends JSBaseArray<T> {
      */
     @SuppressWarnings("unchecked")
     public JSArray<T> sort(final SortCallback<T> callback) {
-        return (JSArray<T>)(property("sort").toFunction().call(this,new JSFunction(context,"_callback") {
+        return (JSArray<T>)(context.prototypeMethod("Array","sort").call(this,new JSFunction(context,"_callback") {
             @SuppressWarnings("unused")
             public double _callback(T a, T b) {
                 return callback.callback((T)((JSValue)a).toJavaObject(mType),
@@ -1123,6 +1126,6 @@ public class JSArray<T> extends JSBaseArray<T> {
      */
     @SuppressWarnings("unchecked")
     public JSArray<T> sort() {
-        return (JSArray<T>)(property("sort").toFunction().call(this).toJSArray());
+        return (JSArray<T>)(context.prototypeMethod("Array","sort").call(this).toJSArray());
     }
 }
@@ -32,6 +32,8 @@
 */
 package org.liquidplayer.webkit.javascriptcore;
 
+import java.nio.ByteBuffer;
+
 /**
  * A wrapper class for a JavaScript ArrayBuffer
  * See: https://developer.mozilla.org/en-US/docs/Web/JavaScript/Reference/Global_Objects/ArrayBuffer
@@ -46,9 +48,29 @@ public class JSArrayBuffer extends JSObjectWrapper {
      * @since 3.0
      */
     public JSArrayBuffer(JSContext ctx, int length) {
-        super(new JSFunction(ctx,"_ArrayBuffer",new String[] {"length"},
-                "return new ArrayBuffer(length);",
-                null, 0).call(null,length).toObject());
+        super(ctx.helperFunction("_ArrayBuffer",new String[] {"length"},
+                "return new ArrayBuffer(length);").call(null,length).toObject());
+    }
+
+    /**
+     * Creates a new array buffer holding the remaining bytes of 'buffer'.  The bytes are
+     * transferred in a single call into JavaScriptCore; the position of 'buffer' is not changed.
+     * Note, this JavaScriptCore version does not expose an ArrayBuffer's backing store, so the
+     * contents are copied rather than shared.
+     * @param ctx  the JSContext in which to create the ArrayBuffer
+     * @param buffer  the bytes to copy into the new ArrayBuffer
+     * @since 3.0
+     */
+    public JSArrayBuffer(JSContext ctx, ByteBuffer buffer) {
+        this(ctx, buffer.remaining());
+        ByteBuffer src;
+        if (buffer.isDirect()) {
+            src = buffer.slice();
+        } else {
+            src = ByteBuffer.allocateDirect(buffer.remaining());
+            src.put(buffer.duplicate());
+        }
+        copyBytes(src, false);
     }
 
     /**
@@ -80,7 +102,7 @@ public class JSArrayBuffer extends JSObjectWrapper {
      * @since 3.0
      */
     public static boolean isView(JSValue arg) {
-        return arg.getContext().property("ArrayBuffer").toObject().property("isView").toFunction()
+        return arg.getContext().staticMethod("ArrayBuffer","isView")
                 .call(null,arg).toBoolean();
     }
 
@@ -94,7 +116,7 @@ public class JSArrayBuffer extends JSObjectWrapper {
      */
     public JSArrayBuffer slice(int begin, int end) {
         return new JSArrayBuffer(
-                property("slice").toFunction().call(this,begin,end).toObject());
+                context.prototypeMethod("ArrayBuffer","slice").call(this,begin,end).toObject());
     }
     /**
      * JavaScript: ArrayBuffer.prototype.slice(), see:
@@ -105,6 +127,41 @@ public class JSArrayBuffer extends JSObjectWrapper {
      */
     public JSArrayBuffer slice(int begin) {
         return new JSArrayBuffer(
-                property("slice").toFunction().call(this,begin).toObject());
+                context.prototypeMethod("ArrayBuffer","slice").call(this,begin).toObject());
     }
+
+    /**
+     * Returns the contents of this ArrayBuffer as a direct ByteBuffer.  The bytes are
+     * transferred in a single call into JavaScriptCore.  Note, this JavaScriptCore version
+     * does not expose an ArrayBuffer's backing store, so the returned buffer is a snapshot
+     * and later writes on either side are not reflected in the other.
+     * @return a new direct ByteBuffer of byteLength() bytes
+     * @since 3.0
+     */
+    public ByteBuffer toByteBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(byteLength());
+        copyBytes(buffer, true);
+        return buffer;
+    }
+
+    private abstract class JNIReturnClass implements Runnable {
+        JNIReturnObject jni;
+    }
+
+    private void copyBytes(final ByteBuffer buffer, final boolean toBuffer) {
+        final JSUint8Array view = new JSUint8Array(this);
+        JNIReturnClass runnable = new JNIReturnClass() {
+            @Override
+            public void run() {
+                jni = copyBytes(context.ctxRef(), view.valueRef(), buffer, toBuffer);
+            }
+        };
+        context.sync(runnable);
+        if (runnable.jni.exception != 0) {
+            context.throwJSException(new JSException(new JSValue(runnable.jni.exception, context)));
+        }
+    }
+
+    protected native JNIReturnObject copyBytes(long ctx, long view, ByteBuffer buffer,
+                                               boolean toBuffer);
 }
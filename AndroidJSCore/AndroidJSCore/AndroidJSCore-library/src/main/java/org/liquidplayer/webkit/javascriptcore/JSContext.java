@@ -32,26 +32,34 @@
 */
 package org.liquidplayer.webkit.javascriptcore;
 
-import java.lang.ref.WeakReference;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Wraps a JavaScriptCore context 
  */
 public class JSContext extends JSObject {
 
-    private final JSWorkerQueue mWorker = new JSWorkerQueue(new Runnable() {
+    private final Runnable mMonitor = new Runnable() {
         @Override
         public void run() {
-            if (deadReferences.size() > 100) {
+            collectDeadReferences();
+            if (deadReferences.size() > 100 || deadStrings.size() > 100) {
                 cleanDeadReferences();
             }
         }
-    });
+    };
+    private final JSWorkerQueue mWorker;
+    private final JSStringCache mStringCache;
+    private JSContextGroup mGroup = null;
 
     protected void sync(Runnable runnable) {
         mWorker.sync(runnable);
@@ -60,24 +68,191 @@ public class JSContext extends JSObject {
         mWorker.async(runnable);
     }
 
+    /**
+     * Gets an interned JavaScript string for a property name.  The string is shared by
+     * all contexts in this context's group and must not be released by the caller.
+     * @param name  The property name
+     * @return  The interned JavaScript string
+     * @since 3.0
+     */
+    protected JSString internString(String name) {
+        return mStringCache.intern(name);
+    }
+
+    private final ConcurrentHashMap<String,JSFunction> mFunctionCache = new ConcurrentHashMap<>();
+
+    /**
+     * Gets a helper function, compiling it on first use and reusing it afterwards.  Functions
+     * are cached by name, parameter names and body together.
+     * @param name  The function name
+     * @param parameterNames  The parameter names
+     * @param body  The function body
+     * @return  The compiled function
+     * @since 3.0
+     */
+    protected JSFunction helperFunction(String name, String[] parameterNames, String body) {
+        StringBuilder key = new StringBuilder("function ").append(name).append('(');
+        for (int i = 0; i < parameterNames.length; i++) {
+            if (i > 0) key.append(',');
+            key.append(parameterNames[i]);
+        }
+        key.append("){").append(body).append('}');
+        JSFunction function = mFunctionCache.get(key.toString());
+        if (function == null) {
+            function = cacheFunction(key.toString(),
+                    new JSFunction(this, name, parameterNames, body, null, 0));
+        }
+        return function;
+    }
+
+    // Caches 'function' under 'key', unless another thread got there first.
+    private JSFunction cacheFunction(String key, JSFunction function) {
+        JSFunction cached = mFunctionCache.putIfAbsent(key, function);
+        return cached != null ? cached : function;
+    }
+
+    /**
+     * Gets a built-in prototype method, e.g. Array.prototype.push, looking it up on first use
+     * and reusing it afterwards.  Call it with the instance as 'this'.  Note, this is the
+     * built-in method, so an override on the instance or on a subclass prototype is not used.
+     * @param constructor  The name of the global constructor, e.g. "Array"
+     * @param method  The name of the prototype method
+     * @return  The prototype method
+     * @since 3.0
+     */
+    protected JSFunction prototypeMethod(String constructor, String method) {
+        String key = constructor + ".prototype." + method;
+        JSFunction function = mFunctionCache.get(key);
+        if (function == null) {
+            function = cacheFunction(key, property(constructor).toObject().property("prototype")
+                    .toObject().property(method).toFunction());
+        }
+        return function;
+    }
+
+    /**
+     * Gets a built-in static method, e.g. Array.from, looking it up on first use and reusing
+     * it afterwards.
+     * @param constructor  The name of the global constructor, e.g. "Array"
+     * @param method  The name of the static method
+     * @return  The static method
+     * @since 3.0
+     */
+    protected JSFunction staticMethod(String constructor, String method) {
+        String key = constructor + "." + method;
+        JSFunction function = mFunctionCache.get(key);
+        if (function == null) {
+            function = cacheFunction(key, property(constructor).toObject().property(method)
+                    .toFunction());
+        }
+        return function;
+    }
+
     public final Object mMutex = new Object();
 
+    private static class JSValueReference extends PhantomReference<JSValue> {
+        JSValueReference(JSValue value, ReferenceQueue<JSValue> queue) {
+            super(value, queue);
+            valueRef = value.valueRef;
+            isObject = value instanceof JSObject;
+        }
+        final long valueRef;
+        final boolean isObject;
+    }
+
+    private static final AtomicLong pendingReferences = new AtomicLong();
+    private static final AtomicLong reclaimedReferences = new AtomicLong();
+    private static final AtomicLong leakedReferences = new AtomicLong();
+
+    private final ReferenceQueue<JSValue> referenceQueue = new ReferenceQueue<>();
+    private final Set<JSValueReference> liveReferences =
+            Collections.newSetFromMap(new ConcurrentHashMap<JSValueReference, Boolean>());
     private final List<Long> deadReferences = new ArrayList<>();
+    private final List<Long> deadStrings = new ArrayList<>();
+
+    /**
+     * Registers a value so that its protected reference is released once the value becomes
+     * unreachable.  Values are only registered once.  This is handled by JSValue and JSObject,
+     * and should not need to be called by clients.
+     * @param value  The value to track
+     * @since 3.0
+     */
+    protected void trackReference(JSValue value) {
+        if (value.isTracked || value == this || value.valueRef == null || value.valueRef == 0)
+            return;
+        value.isTracked = true;
+        liveReferences.add(new JSValueReference(value, referenceQueue));
+    }
 
-    protected void markForUnprotection(Long valueR) {
+    private void collectDeadReferences() {
         synchronized (mMutex) {
-            deadReferences.add(valueR);
+            Reference<? extends JSValue> ref;
+            while ((ref = referenceQueue.poll()) != null) {
+                JSValueReference reference = (JSValueReference) ref;
+                liveReferences.remove(reference);
+                deadReferences.add(reference.valueRef);
+                pendingReferences.incrementAndGet();
+                if (reference.isObject) {
+                    removeDeadObject(reference.valueRef);
+                }
+            }
+            int strings = deadStrings.size();
+            JSString.drainReferences(deadStrings);
+            pendingReferences.addAndGet(deadStrings.size() - strings);
         }
     }
+
     private void cleanDeadReferences() {
         synchronized (mMutex) {
-            for (Long reference : deadReferences) {
-                unprotect(ctxRef(), reference);
+            int count = deadReferences.size() + deadStrings.size();
+            if (count == 0) return;
+            long[] refs = new long[deadReferences.size()];
+            for (int i = 0; i < refs.length; i++) {
+                refs[i] = deadReferences.get(i);
+            }
+            long[] strings = new long[deadStrings.size()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = deadStrings.get(i);
             }
+            unprotectAll(ctxRef(), refs, strings);
             deadReferences.clear();
+            deadStrings.clear();
+            pendingReferences.addAndGet(-count);
+            reclaimedReferences.addAndGet(count);
         }
     }
 
+    /**
+     * Gets the number of values and strings which have become unreachable but whose
+     * JavaScriptCore references have not yet been released.  Released references are batched and
+     * freed together on the JS thread.
+     * @return  the number of references awaiting release, across all contexts
+     * @since 3.0
+     */
+    public static long getPendingReferenceCount() {
+        return pendingReferences.get();
+    }
+
+    /**
+     * Gets the number of JavaScriptCore references released after their Java wrappers became
+     * unreachable.
+     * @return  the number of reclaimed references, across all contexts
+     * @since 3.0
+     */
+    public static long getReclaimedReferenceCount() {
+        return reclaimedReferences.get();
+    }
+
+    /**
+     * Gets the number of value references which were still outstanding when their context was
+     * destroyed, and so were never individually released.
+     * @return  the number of leaked references, across all contexts
+     * @since 3.0
+     */
+    public static long getLeakedReferenceCount() {
+        return leakedReferences.get();
+    }
+
     /**
      * Object interface for handling JSExceptions.
      * @since 2.1
@@ -100,6 +275,8 @@ public class JSContext extends JSObject {
      */
     public JSContext() {
         context = this;
+        mWorker = new JSWorkerQueue(mMonitor);
+        mStringCache = new JSStringCache(JSStringCache.DEFAULT_CAPACITY);
         sync(new Runnable() {
             @Override public void run() {
                 static_init();
@@ -115,6 +292,9 @@ public class JSContext extends JSObject {
      */
     public JSContext(final JSContextGroup inGroup) {
         context = this;
+        mGroup = inGroup;
+        mWorker = new JSWorkerQueue(mMonitor, inGroup.getWorker());
+        mStringCache = inGroup.getStringCache();
         sync(new Runnable() {
             @Override public void run() {
                 static_init();
@@ -131,6 +311,8 @@ public class JSContext extends JSObject {
      */
     public JSContext(final Class<?> iface) {
         context = this;
+        mWorker = new JSWorkerQueue(mMonitor);
+        mStringCache = new JSStringCache(JSStringCache.DEFAULT_CAPACITY);
         sync(new Runnable() {
             @Override public void run() {
                 static_init();
@@ -154,6 +336,9 @@ public class JSContext extends JSObject {
      */
     public JSContext(final JSContextGroup inGroup, final Class<?> iface) {
         context = this;
+        mGroup = inGroup;
+        mWorker = new JSWorkerQueue(mMonitor, inGroup.getWorker());
+        mStringCache = inGroup.getStringCache();
         sync(new Runnable() {
             @Override public void run() {
                 static_init();
@@ -170,7 +355,10 @@ public class JSContext extends JSObject {
     @Override
     protected void finalize() throws Throwable {
         super.finalize();
+        collectDeadReferences();
         cleanDeadReferences();
+        leakedReferences.addAndGet(liveReferences.size());
+        liveReferences.clear();
         isDefunct = true;
         release(ctx);
         if (mWorker != null) {
@@ -222,6 +410,7 @@ public class JSContext extends JSObject {
      * @return  The context group to which this context belongs
      */
     public JSContextGroup getGroup() {
+        if (mGroup != null) return mGroup;
         Long g = getGroup(ctx);
         if (g==0) return null;
         return new JSContextGroup(g);
@@ -290,7 +479,7 @@ public class JSContext extends JSObject {
         return evaluateScript(script,null,null,0);
     }
 
-    private Map<Long,WeakReference<JSObject>> objects = new HashMap<>();
+    private final JSObjectIdentityMap objects = new JSObjectIdentityMap();
 
     /**
      * Keeps a reference to an object in this context.  This is used so that only one
@@ -300,8 +489,9 @@ public class JSContext extends JSObject {
      * @param obj  The object with which to associate with this context
      * @since 1.0
      */
-    protected synchronized  void persistObject(JSObject obj) {
-        objects.put(obj.valueRef(), new WeakReference<>(obj));
+    protected void persistObject(JSObject obj) {
+        objects.put(obj.valueRef(), obj);
+        trackReference(obj);
     }
     /**
      * Removes a reference to an object in this context.  Should only be used from the 'finalize'
@@ -309,9 +499,12 @@ public class JSContext extends JSObject {
      * @param obj the JSObject to dereference
      * @since 1.0
      */
-    protected synchronized void finalizeObject(JSObject obj) {
+    protected void finalizeObject(JSObject obj) {
         objects.remove(obj.valueRef());
     }
+    private void removeDeadObject(long objRef) {
+        objects.removeIfCleared(objRef);
+    }
     /**
      * Reuses a stored reference to a JavaScript object if it exists, otherwise, it creates the
      * reference.
@@ -320,27 +513,43 @@ public class JSContext extends JSObject {
      * @since 1.0
      * @return The JSObject representing the reference
      */
-    protected synchronized JSObject getObjectFromRef(long objRef,boolean create) {
+    protected JSObject getObjectFromRef(long objRef,boolean create) {
         if (objRef == valueRef()) return this;
-        WeakReference<JSObject> wr = objects.get(objRef);
-        JSObject obj = null;
-        if (wr != null) {
-            obj = wr.get();
-            if (obj != null)
-                obj.unprotect(ctxRef(),obj.valueRef());
+        JSObject obj = objects.get(objRef);
+        if (obj == null && create) {
+            // Wrappers are only created on the JS thread, so two threads cannot both wrap
+            // the same object
+            JSObjectReturnClass runnable = new JSObjectReturnClass(objRef);
+            sync(runnable);
+            return runnable.object;
+        }
+        if (obj != null)
+            obj.unprotect(ctxRef(),obj.valueRef());
+        return obj;
+    }
+    private class JSObjectReturnClass implements Runnable {
+        private final long objRef;
+        JSObject object;
+        JSObjectReturnClass(long objRef) {
+            this.objRef = objRef;
         }
-        if (obj==null && create) {
-            obj = new JSObject(objRef,this);
+        @Override
+        public void run() {
+            object = objects.get(objRef);
+            if (object != null) {
+                object.unprotect(ctxRef(),objRef);
+                return;
+            }
+            object = new JSObject(objRef,JSContext.this);
             if (isArray(ctxRef(),objRef))
-                obj = new JSArray(objRef,this);
-            else if (JSTypedArray.isTypedArray(obj))
-                obj = JSTypedArray.from(obj);
+                object = new JSArray(objRef,JSContext.this);
+            else if (JSTypedArray.isTypedArray(object))
+                object = JSTypedArray.from(object);
             else if (isFunction(ctxRef(),objRef))
-                obj = new JSFunction(objRef,this);
+                object = new JSFunction(objRef,JSContext.this);
         }
-        return obj;
     }
-    protected synchronized JSObject getObjectFromRef(long objRef) {
+    protected JSObject getObjectFromRef(long objRef) {
         return getObjectFromRef(objRef,true);
     }
     /**
@@ -352,6 +561,8 @@ public class JSContext extends JSObject {
         async(new Runnable() {
             @Override
             public void run() {
+                collectDeadReferences();
+                cleanDeadReferences();
                 garbageCollect(ctx);
             }
         });
@@ -368,6 +579,7 @@ public class JSContext extends JSObject {
     @SuppressWarnings("unused")
     protected native JNIReturnObject checkScriptSyntax(long ctx, long script, long sourceURL, int startingLineNumber);
     protected native void garbageCollect(long ctx);
+    protected native void unprotectAll(long ctx, long[] valueRefs, long[] stringRefs);
 
     static boolean isInit = false;
 
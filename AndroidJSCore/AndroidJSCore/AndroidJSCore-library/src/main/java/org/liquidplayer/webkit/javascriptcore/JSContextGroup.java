@@ -42,6 +42,8 @@ package org.liquidplayer.webkit.javascriptcore;
  */
 public class JSContextGroup {
     private Long group;
+    private JSValue.JSWorkerQueue mWorker = null;
+    private JSValue.JSStringCache mStringCache = null;
 
     /**
      * Creates a new context group
@@ -63,9 +65,39 @@ public class JSContextGroup {
     @Override
     protected void finalize() throws Throwable {
         if (group!=0) release(group);
+        if (mWorker != null) mWorker.quit();
         super.finalize();
     }
 
+    /**
+     * Gets the worker queue whose thread is shared by all contexts created in this group.
+     * The thread is only started once the first context is created.
+     * @return  the worker queue of this group
+     * @since 3.0
+     */
+    protected synchronized JSValue.JSWorkerQueue getWorker() {
+        if (mWorker == null) {
+            mWorker = new JSValue.JSWorkerQueue(new Runnable() {
+                @Override
+                public void run() {
+                }
+            });
+        }
+        return mWorker;
+    }
+
+    /**
+     * Gets the property name cache shared by all contexts created in this group.
+     * @return  the string cache of this group
+     * @since 3.0
+     */
+    protected synchronized JSValue.JSStringCache getStringCache() {
+        if (mStringCache == null) {
+            mStringCache = new JSValue.JSStringCache(JSValue.JSStringCache.DEFAULT_CAPACITY);
+        }
+        return mStringCache;
+    }
+
     /**
      * Gets the JavaScriptCore context group reference
      * @since 1.0
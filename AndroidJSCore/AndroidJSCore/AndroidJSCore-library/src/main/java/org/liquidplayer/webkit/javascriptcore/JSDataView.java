@@ -35,6 +35,8 @@ package org.liquidplayer.webkit.javascriptcore;
 /**
  * A wrapper class for a JavaScript DataView
  * See: https://developer.mozilla.org/en-US/docs/Web/JavaScript/Reference/Global_Objects/DataView
+ * The getters and setters call the built-in DataView.prototype methods, so overrides on the
+ * view itself or on its prototype chain are not used.
  * @since 3.0
  */
 public class JSDataView extends JSObjectWrapper {
@@ -45,11 +47,9 @@ public class JSDataView extends JSObjectWrapper {
      * @since 3.0
      */
     public JSDataView(JSArrayBuffer buffer) {
-        super(new JSFunction(buffer.getJSObject().getContext(),
-                "_DataView",new String[] {"buffer"},
-
-                "return new DataView(buffer);",
-                null, 0).call(null,buffer).toObject());
+        super(buffer.getJSObject().getContext().helperFunction("_DataView",
+                new String[] {"buffer"},
+                "return new DataView(buffer);").call(null,buffer).toObject());
     }
     /**
      * Creates a new DataView JavaScript object from ArrayBuffer 'buffer' starting from
@@ -59,11 +59,9 @@ public class JSDataView extends JSObjectWrapper {
      * @since 3.0
      */
     public JSDataView(JSArrayBuffer buffer, int byteOffset) {
-        super(new JSFunction(buffer.getJSObject().getContext(),
-                "_DataView1",new String[] {"buffer","byteOffset"},
-
-                "return new DataView(buffer,byteOffset);",
-                null, 0).call(null,buffer,byteOffset).toObject());
+        super(buffer.getJSObject().getContext().helperFunction("_DataView1",
+                new String[] {"buffer","byteOffset"},
+                "return new DataView(buffer,byteOffset);").call(null,buffer,byteOffset).toObject());
     }
     /**
      * Creates a new DataView JavaScript object from ArrayBuffer 'buffer' starting from
@@ -74,11 +72,9 @@ public class JSDataView extends JSObjectWrapper {
      * @since 3.0
      */
     public JSDataView(JSArrayBuffer buffer, int byteOffset, int byteLength) {
-        super(new JSFunction(buffer.getJSObject().getContext(),
-                "_DataView2",new String[] {"buffer","byteOffset","byteLength"},
-
-                "return new DataView(buffer,byteOffset,byteLength);",
-                null, 0).call(null,buffer,byteOffset,byteLength).toObject());
+        super(buffer.getJSObject().getContext().helperFunction("_DataView2",
+                new String[] {"buffer","byteOffset","byteLength"},
+                "return new DataView(buffer,byteOffset,byteLength);").call(null,buffer,byteOffset,byteLength).toObject());
     }
 
     /**
@@ -126,7 +122,7 @@ public class JSDataView extends JSObjectWrapper {
      * @return the value at byteOffset
      */
     public Float getFloat32(int byteOffset, boolean littleEndian) {
-        return property("getFloat32").toFunction().call(this,byteOffset,littleEndian)
+        return context.prototypeMethod("DataView","getFloat32").call(this,byteOffset,littleEndian)
                 .toNumber().floatValue();
     }
     /**
@@ -136,7 +132,7 @@ public class JSDataView extends JSObjectWrapper {
      * @return the value at byteOffset
      */
     public Float getFloat32(int byteOffset) {
-        return property("getFloat32").toFunction().call(this,byteOffset)
+        return context.prototypeMethod("DataView","getFloat32").call(this,byteOffset)
                 .toNumber().floatValue();
     }
 
@@ -148,7 +144,7 @@ public class JSDataView extends JSObjectWrapper {
      * @param littleEndian  whether the value is to be stored with little endianness
      */
     public void setFloat32(int byteOffset, Float value, boolean littleEndian) {
-        property("setFloat32").toFunction().call(this,byteOffset,value,littleEndian);
+        context.prototypeMethod("DataView","setFloat32").call(this,byteOffset,value,littleEndian);
     }
     /**
      * JavasScript DataView.prototype.setFloat32(), see:
@@ -157,7 +153,7 @@ public class JSDataView extends JSObjectWrapper {
      * @param value the value to store at 'byteOffset'
      */
     public void setFloat32(int byteOffset, Float value) {
-        property("setFloat32").toFunction().call(this,byteOffset,value);
+        context.prototypeMethod("DataView","setFloat32").call(this,byteOffset,value);
     }
 
     /**
@@ -168,7 +164,7 @@ public class JSDataView extends JSObjectWrapper {
      * @return the value at byteOffset
      */
     public Double getFloat64(int byteOffset, boolean littleEndian) {
-        return property("getFloat64").toFunction().call(this,byteOffset,littleEndian)
+        return context.prototypeMethod("DataView","getFloat64").call(this,byteOffset,littleEndian)
                 .toNumber();
     }
     /**
@@ -178,7 +174,7 @@ public class JSDataView extends JSObjectWrapper {
      * @return the value at byteOffset
      */
     public Double getFloat64(int byteOffset) {
-        return property("getFloat64").toFunction().call(this,byteOffset)
+        return context.prototypeMethod("DataView","getFloat64").call(this,byteOffset)
                 .toNumber();
     }
 
@@ -190,7 +186,7 @@ public class JSDataView extends JSObjectWrapper {
      * @param littleEndian  whether the value is to be stored with little endianness
      */
     public void setFloat64(int byteOffset, Double value, boolean littleEndian) {
-        property("setFloat64").toFunction().call(this,byteOffset,value,littleEndian);
+        context.prototypeMethod("DataView","setFloat64").call(this,byteOffset,value,littleEndian);
     }
     /**
      * JavasScript DataView.prototype.setFloat64(), see:
@@ -199,7 +195,7 @@ public class JSDataView extends JSObjectWrapper {
      * @param value the value to store at 'byteOffset'
      */
     public void setFloat64(int byteOffset, Double value) {
-        property("setFloat64").toFunction().call(this,byteOffset,value);
+        context.prototypeMethod("DataView","setFloat64").call(this,byteOffset,value);
     }
 
     /**
@@ -210,7 +206,7 @@ public class JSDataView extends JSObjectWrapper {
      * @return the value at byteOffset
      */
     public Integer getInt32(int byteOffset, boolean littleEndian) {
-        return property("getInt32").toFunction().call(this,byteOffset,littleEndian)
+        return context.prototypeMethod("DataView","getInt32").call(this,byteOffset,littleEndian)
                 .toNumber().intValue();
     }
     /**
@@ -220,7 +216,7 @@ public class JSDataView extends JSObjectWrapper {
      * @return the value at byteOffset
      */
     public Integer getInt32(int byteOffset) {
-        return property("getInt32").toFunction().call(this,byteOffset)
+        return context.prototypeMethod("DataView","getInt32").call(this,byteOffset)
                 .toNumber().intValue();
     }
 
@@ -232,7 +228,7 @@ public class JSDataView extends JSObjectWrapper {
      * @param littleEndian  whether the value is to be stored with little endianness
      */
     public void setInt32(int byteOffset, Integer value, boolean littleEndian) {
-        property("setInt32").toFunction().call(this,byteOffset,value,littleEndian);
+        context.prototypeMethod("DataView","setInt32").call(this,byteOffset,value,littleEndian);
     }
     /**
      * JavasScript DataView.prototype.setInt32(), see:
@@ -241,7 +237,7 @@ public class JSDataView extends JSObjectWrapper {
      * @param value the value to store at 'byteOffset'
      */
     public void setInt32(int byteOffset, Integer value) {
-        property("setInt32").toFunction().call(this,byteOffset,value);
+        context.prototypeMethod("DataView","setInt32").call(this,byteOffset,value);
     }
 
     /**
@@ -252,7 +248,7 @@ public class JSDataView extends JSObjectWrapper {
      * @return the value at byteOffset
      */
     public Long getUint32(int byteOffset, boolean littleEndian) {
-        return property("getUint32").toFunction().call(this,byteOffset,littleEndian)
+        return context.prototypeMethod("DataView","getUint32").call(this,byteOffset,littleEndian)
                 .toNumber().longValue();
     }
     /**
@@ -262,7 +258,7 @@ public class JSDataView extends JSObjectWrapper {
      * @return the value at byteOffset
      */
     public Long getUint32(int byteOffset) {
-        return property("getUint32").toFunction().call(this,byteOffset)
+        return context.prototypeMethod("DataView","getUint32").call(this,byteOffset)
                 .toNumber().longValue();
     }
 
@@ -274,7 +270,7 @@ public class JSDataView extends JSObjectWrapper {
      * @param littleEndian  whether the value is to be stored with little endianness
      */
     public void setUint32(int byteOffset, Long value, boolean littleEndian) {
-        property("setUint32").toFunction().call(this,byteOffset,value,littleEndian);
+        context.prototypeMethod("DataView","setUint32").call(this,byteOffset,value,littleEndian);
     }
     /**
      * JavasScript DataView.prototype.setUint32(), see:
@@ -283,7 +279,7 @@ public class JSDataView extends JSObjectWrapper {
      * @param value the value to store at 'byteOffset'
      */
     public void setUint32(int byteOffset, Long value) {
-        property("setUint32").toFunction().call(this,byteOffset,value);
+        context.prototypeMethod("DataView","setUint32").call(this,byteOffset,value);
     }
 
     /**
@@ -294,7 +290,7 @@ public class JSDataView extends JSObjectWrapper {
      * @return the value at byteOffset
      */
     public Short getInt16(int byteOffset, boolean littleEndian) {
-        return property("getInt16").toFunction().call(this,byteOffset,littleEndian)
+        return context.prototypeMethod("DataView","getInt16").call(this,byteOffset,littleEndian)
                 .toNumber().shortValue();
     }
     /**
@@ -304,7 +300,7 @@ public class JSDataView extends JSObjectWrapper {
      * @return the value at byteOffset
      */
     public Short getInt16(int byteOffset) {
-        return property("getInt16").toFunction().call(this,byteOffset)
+        return context.prototypeMethod("DataView","getInt16").call(this,byteOffset)
                 .toNumber().shortValue();
     }
 
@@ -316,7 +312,7 @@ public class JSDataView extends JSObjectWrapper {
      * @param littleEndian  whether the value is to be stored with little endianness
      */
     public void setInt16(int byteOffset, Short value, boolean littleEndian) {
-        property("setInt16").toFunction().call(this,byteOffset,value,littleEndian);
+        context.prototypeMethod("DataView","setInt16").call(this,byteOffset,value,littleEndian);
     }
     /**
      * JavasScript DataView.prototype.setInt16(), see:
@@ -325,7 +321,7 @@ public class JSDataView extends JSObjectWrapper {
      * @param value the value to store at 'byteOffset'
      */
     public void setInt16(int byteOffset, Short value) {
-        property("setInt16").toFunction().call(this,byteOffset,value);
+        context.prototypeMethod("DataView","setInt16").call(this,byteOffset,value);
     }
 
     /**
@@ -336,7 +332,7 @@ public class JSDataView extends JSObjectWrapper {
      * @return the value at byteOffset
      */
     public Short getUint16(int byteOffset, boolean littleEndian) {
-        return property("getUint16").toFunction().call(this,byteOffset,littleEndian)
+        return context.prototypeMethod("DataView","getUint16").call(this,byteOffset,littleEndian)
                 .toNumber().shortValue();
     }
     /**
@@ -346,7 +342,7 @@ public class JSDataView extends JSObjectWrapper {
      * @return the value at byteOffset
      */
     public Short getUint16(int byteOffset) {
-        return property("getUint16").toFunction().call(this,byteOffset)
+        return context.prototypeMethod("DataView","getUint16").call(this,byteOffset)
                 .toNumber().shortValue();
     }
 
@@ -358,7 +354,7 @@ public class JSDataView extends JSObjectWrapper {
      * @param littleEndian  whether the value is to be stored with little endianness
      */
     public void setUint16(int byteOffset, Short value, boolean littleEndian) {
-        property("setUint16").toFunction().call(this,byteOffset,value,littleEndian);
+        context.prototypeMethod("DataView","setUint16").call(this,byteOffset,value,littleEndian);
     }
     /**
      * JavasScript DataView.prototype.setUint16(), see:
@@ -367,7 +363,7 @@ public class JSDataView extends JSObjectWrapper {
      * @param value the value to store at 'byteOffset'
      */
     public void setUint16(int byteOffset, Short value) {
-        property("setUint16").toFunction().call(this,byteOffset,value);
+        context.prototypeMethod("DataView","setUint16").call(this,byteOffset,value);
     }
 
     /**
@@ -377,7 +373,7 @@ public class JSDataView extends JSObjectWrapper {
      * @return the value at byteOffset
      */
     public Byte getInt8(int byteOffset) {
-        return property("getInt8").toFunction().call(this,byteOffset)
+        return context.prototypeMethod("DataView","getInt8").call(this,byteOffset)
                 .toNumber().byteValue();
     }
 
@@ -388,7 +384,7 @@ public class JSDataView extends JSObjectWrapper {
      * @param value the value to store at 'byteOffset'
      */
     public void setInt8(int byteOffset, Byte value) {
-        property("setInt8").toFunction().call(this,byteOffset,value);
+        context.prototypeMethod("DataView","setInt8").call(this,byteOffset,value);
     }
 
     /**
@@ -398,7 +394,7 @@ public class JSDataView extends JSObjectWrapper {
      * @return the value at byteOffset
      */
     public Byte getUint8(int byteOffset) {
-        return property("getUint8").toFunction().call(this,byteOffset)
+        return context.prototypeMethod("DataView","getUint8").call(this,byteOffset)
                 .toNumber().byteValue();
     }
 
@@ -409,7 +405,7 @@ public class JSDataView extends JSObjectWrapper {
      * @param value the value to store at 'byteOffset'
      */
     public void setUint8(int byteOffset, Byte value) {
-        property("setUint8").toFunction().call(this,byteOffset,value);
+        context.prototypeMethod("DataView","setUint8").call(this,byteOffset,value);
     }
     
 }
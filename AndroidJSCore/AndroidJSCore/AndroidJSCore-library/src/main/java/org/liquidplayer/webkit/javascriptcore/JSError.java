@@ -51,6 +51,7 @@ public class JSError extends JSObject {
         JNIReturnObject jni = makeError(context.ctxRef(), args);
         if (BuildConfig.DEBUG && jni.exception != 0) throw new AssertionError();
         valueRef = jni.reference;
+        context.trackReference(this);
     }
     /**
      * Generates a JavaScript throwable exception object
@@ -62,6 +63,7 @@ public class JSError extends JSObject {
         JNIReturnObject jni = makeError(context.ctxRef(), new long[0]);
         if (BuildConfig.DEBUG && jni.exception != 0) throw new AssertionError();
         valueRef = jni.reference;
+        context.trackReference(this);
     }
 
     /**
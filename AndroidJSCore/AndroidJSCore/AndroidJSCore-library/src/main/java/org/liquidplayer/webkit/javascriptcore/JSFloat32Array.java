@@ -126,6 +126,31 @@ public class JSFloat32Array extends JSTypedArray<Float> {
         return (JSFloat32Array)super.subarray(begin);
     }
 
+    /**
+     * Copies the contents of 'src' into this array, starting at element 'offset', in a
+     * single call into JavaScriptCore
+     * @param src  the values to copy
+     * @param offset  the index of the first element to write
+     * @since 3.0
+     */
+    public void set(float[] src, int offset) {
+        double[] values = new double[src.length];
+        for (int i=0; i<src.length; i++) values[i] = src[i];
+        setElements(offset, values);
+    }
+    /**
+     * Copies elements of this array, starting at element 'offset', into 'dst' in a
+     * single call into JavaScriptCore
+     * @param dst  the array to fill; 'dst.length' elements are copied
+     * @param offset  the index of the first element to read
+     * @since 3.0
+     */
+    public void get(float[] dst, int offset) {
+        double[] values = new double[dst.length];
+        getElements(offset, values);
+        for (int i=0; i<dst.length; i++) dst[i] = (float)values[i];
+    }
+
     private JSFloat32Array(JSFloat32Array superList, int leftBuffer, int rightBuffer) {
         super(superList,leftBuffer,rightBuffer,Float.class);
     }
@@ -125,6 +125,27 @@ public class JSFloat64Array extends JSTypedArray<Double> {
         return (JSFloat64Array)super.subarray(begin);
     }
 
+    /**
+     * Copies the contents of 'src' into this array, starting at element 'offset', in a
+     * single call into JavaScriptCore
+     * @param src  the values to copy
+     * @param offset  the index of the first element to write
+     * @since 3.0
+     */
+    public void set(double[] src, int offset) {
+        setElements(offset, src);
+    }
+    /**
+     * Copies elements of this array, starting at element 'offset', into 'dst' in a
+     * single call into JavaScriptCore
+     * @param dst  the array to fill; 'dst.length' elements are copied
+     * @param offset  the index of the first element to read
+     * @since 3.0
+     */
+    public void get(double[] dst, int offset) {
+        getElements(offset, dst);
+    }
+
     private JSFloat64Array(JSFloat64Array superList, int leftBuffer, int rightBuffer) {
         super(superList,leftBuffer,rightBuffer,Double.class);
     }
@@ -36,6 +36,8 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A JavaScript function object.
@@ -137,6 +139,7 @@ public class JSFunction extends JSObject {
         context = ctx;
         this.method = method;
         this.invokeObject = (invokeObject==null) ? this: invokeObject;
+        invoker = MethodInvoker.forMethod(method);
         context.sync(new Runnable() {
             @Override
             public void run() {
@@ -296,6 +299,8 @@ public class JSFunction extends JSObject {
         }
         if (method == null) {
             context.throwJSException(new JSException(context,"No such method. Did you make it public?"));
+        } else {
+            invoker = MethodInvoker.forMethod(method);
         }
         context.sync(new Runnable() {
             @Override
@@ -525,28 +530,18 @@ public class JSFunction extends JSObject {
     }
 
     protected JSValue function(JSObject thiz, JSValue [] args, final JSObject invokeObject) {
-        Class<?>[] pType  = method.getParameterTypes();
-        Object [] passArgs = new Object[pType.length];
-        for (int i=0; i<passArgs.length; i++) {
-            if (i<args.length) {
-                if (args[i]==null) passArgs[i] = null;
-                else passArgs[i] = args[i].toJavaObject(pType[i]);
-            } else {
-                passArgs[i] = null;
-            }
+        MethodInvoker invoker = this.invoker;
+        if (invoker == null || invoker.method != method) {
+            invoker = this.invoker = MethodInvoker.forMethod(method);
         }
+        Object [] passArgs = invoker.convertArguments(args);
         JSValue returnValue;
         JSObject stack=null;
         try {
             stack = invokeObject.getThis();
             invokeObject.setThis(thiz);
             Object ret = method.invoke(invokeObject, passArgs);
-            if (method.getReturnType() == Void.class || ret == null)
-                returnValue = new JSValue(context);
-            else if (ret instanceof JSValue)
-                returnValue = (JSValue)ret;
-            else
-                returnValue = new JSValue(context,ret);
+            returnValue = invoker.convertReturn(context, ret);
         } catch (InvocationTargetException e) {
             e.printStackTrace();
             context.throwJSException(new JSException(context, e.toString()));
@@ -560,6 +555,111 @@ public class JSFunction extends JSObject {
         return returnValue;
     }
 
+    private interface ArgumentConverter {
+        Object convert(JSValue value);
+    }
+
+    private static final ArgumentConverter doubleConverter = new ArgumentConverter() {
+        @Override
+        public Object convert(JSValue value) {
+            return value.toNumber();
+        }
+    };
+    private static final ArgumentConverter intConverter = new ArgumentConverter() {
+        @Override
+        public Object convert(JSValue value) {
+            return value.toNumber().intValue();
+        }
+    };
+    private static final ArgumentConverter booleanConverter = new ArgumentConverter() {
+        @Override
+        public Object convert(JSValue value) {
+            return value.toBoolean();
+        }
+    };
+    private static final ArgumentConverter stringConverter = new ArgumentConverter() {
+        @Override
+        public Object convert(JSValue value) {
+            return value.toString();
+        }
+    };
+    private static final ArgumentConverter identityConverter = new ArgumentConverter() {
+        @Override
+        public Object convert(JSValue value) {
+            return value;
+        }
+    };
+
+    private static ArgumentConverter converterFor(final Class<?> type) {
+        if (type == double.class || type == Double.class) return doubleConverter;
+        if (type == int.class || type == Integer.class) return intConverter;
+        if (type == boolean.class || type == Boolean.class) return booleanConverter;
+        if (type == String.class) return stringConverter;
+        if (type == Object.class || type == JSValue.class) return identityConverter;
+        return new ArgumentConverter() {
+            @Override
+            public Object convert(JSValue value) {
+                return value.toJavaObject(type);
+            }
+        };
+    }
+
+    /**
+     * Per-method dispatch data, resolved once per Method and shared by every JSFunction
+     * which calls it: the argument converters, the return handling and the access check.
+     */
+    private static class MethodInvoker {
+        private static final Map<Method,MethodInvoker> invokers = new ConcurrentHashMap<>();
+
+        static MethodInvoker forMethod(Method method) {
+            MethodInvoker invoker = invokers.get(method);
+            if (invoker == null) {
+                invoker = new MethodInvoker(method);
+                invokers.put(method, invoker);
+            }
+            return invoker;
+        }
+
+        final Method method;
+        private final ArgumentConverter[] converters;
+        private final boolean returnsVoid;
+        private final boolean returnsJSValue;
+
+        private MethodInvoker(Method method) {
+            this.method = method;
+            Class<?>[] pType = method.getParameterTypes();
+            converters = new ArgumentConverter[pType.length];
+            for (int i=0; i<pType.length; i++) {
+                converters[i] = converterFor(pType[i]);
+            }
+            Class<?> returnType = method.getReturnType();
+            returnsVoid = returnType == void.class || returnType == Void.class;
+            returnsJSValue = JSValue.class.isAssignableFrom(returnType);
+            try {
+                method.setAccessible(true);
+            } catch (SecurityException e) {
+                // fall back to the access check on each call
+            }
+        }
+
+        Object [] convertArguments(JSValue [] args) {
+            Object [] passArgs = new Object[converters.length];
+            for (int i=0; i<passArgs.length && i<args.length; i++) {
+                if (args[i]!=null) passArgs[i] = converters[i].convert(args[i]);
+            }
+            return passArgs;
+        }
+
+        JSValue convertReturn(JSContext context, Object ret) {
+            if (returnsVoid || ret == null)
+                return new JSValue(context);
+            else if (returnsJSValue || ret instanceof JSValue)
+                return (JSValue)ret;
+            else
+                return new JSValue(context,ret);
+        }
+    }
+
     private abstract class JSObjectReturnClass implements Runnable {
         public JSObject object;
         @Override
@@ -651,4 +751,5 @@ public class JSFunction extends JSObject {
 
     protected Method method = null;
     private JSObject invokeObject = null;
+    private MethodInvoker invoker = null;
 }
@@ -126,6 +126,31 @@ public class JSInt8Array extends JSTypedArray<Byte> {
         return (JSInt8Array)super.subarray(begin);
     }
 
+    /**
+     * Copies the contents of 'src' into this array, starting at element 'offset', in a
+     * single call into JavaScriptCore
+     * @param src  the values to copy
+     * @param offset  the index of the first element to write
+     * @since 3.0
+     */
+    public void set(byte[] src, int offset) {
+        double[] values = new double[src.length];
+        for (int i=0; i<src.length; i++) values[i] = src[i];
+        setElements(offset, values);
+    }
+    /**
+     * Copies elements of this array, starting at element 'offset', into 'dst' in a
+     * single call into JavaScriptCore
+     * @param dst  the array to fill; 'dst.length' elements are copied
+     * @param offset  the index of the first element to read
+     * @since 3.0
+     */
+    public void get(byte[] dst, int offset) {
+        double[] values = new double[dst.length];
+        getElements(offset, values);
+        for (int i=0; i<dst.length; i++) dst[i] = (byte)values[i];
+    }
+
     private JSInt8Array(JSInt8Array superList, int leftBuffer, int rightBuffer) {
         super(superList,leftBuffer,rightBuffer,Byte.class);
     }
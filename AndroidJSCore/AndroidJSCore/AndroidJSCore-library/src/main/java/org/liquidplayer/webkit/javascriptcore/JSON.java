@@ -40,6 +40,7 @@ public class JSON extends JSValue {
     private JSON(JSContext ctx, String str) {
         context = ctx;
         valueRef = this.makeFromJSONString(context.ctxRef(), new JSString(str).stringRef());
+        context.trackReference(this);
     }
 
     /**
@@ -169,7 +169,7 @@ public class JSObject extends JSValue {
             @Override
             public void run() {
                 jni = new JNIReturnObject();
-                jni.bool = hasProperty(context.ctxRef(), valueRef, new JSString(prop).stringRef());
+                jni.bool = hasProperty(context.ctxRef(), valueRef, context.internString(prop).stringRef());
             }
         };
         context.sync(runnable);
@@ -187,7 +187,7 @@ public class JSObject extends JSValue {
         JNIReturnClass runnable = new JNIReturnClass() {
             @Override
             public void run() {
-                jni = getProperty(context.ctxRef(), valueRef, new JSString(prop).stringRef());
+                jni = getProperty(context.ctxRef(), valueRef, context.internString(prop).stringRef());
             }
         };
         context.sync(runnable);
@@ -211,7 +211,7 @@ public class JSObject extends JSValue {
         JNIReturnClass runnable = new JNIReturnClass() {
             @Override
             public void run() {
-                JSString name = new JSString(prop);
+                JSString name = context.internString(prop);
                 jni = setProperty(
                         context.ctxRef(),
                         valueRef,
@@ -249,7 +249,7 @@ public class JSObject extends JSValue {
         JNIReturnClass runnable = new JNIReturnClass() {
             @Override
             public void run() {
-                JSString name = new JSString(prop);
+                JSString name = context.internString(prop);
                 jni = deleteProperty(context.ctxRef(), valueRef, name.stringRef());
             }
         };
@@ -261,6 +261,128 @@ public class JSObject extends JSValue {
         return runnable.jni.bool;
     }
 
+    /**
+     * Gets several properties at once.  All of the properties are read in a single
+     * call into JavaScriptCore, which is considerably cheaper than calling
+     * {@link #property(String)} for each name.  Primitive values are returned as plain
+     * Java objects rather than JSValues: numbers as Double, booleans as Boolean and strings as
+     * String.  Objects are returned as JSObject, and null or undefined values as null.
+     *
+     * @param names The names of the properties to fetch
+     * @return An array of values in the same order as 'names'
+     * @since 3.0
+     */
+    public Object[] properties(final String... names) {
+        final int[] types = new int[names.length];
+        final double[] numbers = new double[names.length];
+        final long[] references = new long[names.length];
+        final String[] strings = new String[names.length];
+        JNIReturnClass runnable = new JNIReturnClass() {
+            @Override
+            public void run() {
+                JSString[] interned = new JSString[names.length];
+                long[] nameRefs = new long[names.length];
+                for (int i = 0; i < names.length; i++) {
+                    interned[i] = context.internString(names[i]);
+                    nameRefs[i] = interned[i].stringRef();
+                }
+                jni = getProperties(context.ctxRef(), valueRef, nameRefs, types, numbers,
+                        references, strings);
+            }
+        };
+        context.sync(runnable);
+        Object[] values = new Object[names.length];
+        for (int i = 0; i < names.length; i++) {
+            switch (types[i]) {
+                case JSTypeBoolean:
+                    values[i] = numbers[i] != 0;
+                    break;
+                case JSTypeNumber:
+                    values[i] = numbers[i];
+                    break;
+                case JSTypeString:
+                    values[i] = strings[i];
+                    break;
+                case JSTypeObject:
+                    values[i] = context.getObjectFromRef(references[i]);
+                    break;
+                default:
+                    values[i] = null;
+            }
+        }
+        if (runnable.jni.exception != 0) {
+            context.throwJSException(new JSException(new JSValue(runnable.jni.exception, context)));
+        }
+        return values;
+    }
+
+    /**
+     * Sets several properties at once.  All of the properties are written in a single
+     * call into JavaScriptCore.  Numbers, booleans, strings and nulls are passed across without
+     * creating intermediate JSValues.  Any other Java object will be converted to a JavaScript
+     * object as in {@link #property(String, Object)}.
+     *
+     * @param properties A map of property names to values
+     * @param attributes And OR'd list of JSProperty constants
+     * @since 3.0
+     */
+    public void setProperties(final Map<String,?> properties, final int attributes) {
+        JNIReturnClass runnable = new JNIReturnClass() {
+            @Override
+            public void run() {
+                int size = properties.size();
+                JSString[] interned = new JSString[size];
+                long[] nameRefs = new long[size];
+                int[] types = new int[size];
+                double[] numbers = new double[size];
+                long[] references = new long[size];
+                String[] strings = new String[size];
+                // Holds on to converted values until JavaScriptCore has them
+                JSValue[] converted = new JSValue[size];
+                int i = 0;
+                for (Map.Entry<String,?> entry : properties.entrySet()) {
+                    Object value = entry.getValue();
+                    interned[i] = context.internString(entry.getKey());
+                    nameRefs[i] = interned[i].stringRef();
+                    if (value == null) {
+                        types[i] = JSTypeNull;
+                    } else if (value instanceof Boolean) {
+                        types[i] = JSTypeBoolean;
+                        numbers[i] = ((Boolean) value) ? 1 : 0;
+                    } else if (value instanceof Number) {
+                        types[i] = JSTypeNumber;
+                        numbers[i] = ((Number) value).doubleValue();
+                    } else if (value instanceof String) {
+                        types[i] = JSTypeString;
+                        strings[i] = (String) value;
+                    } else {
+                        converted[i] = (value instanceof JSValue) ? (JSValue) value :
+                                new JSValue(context, value);
+                        types[i] = JSTypeObject;
+                        references[i] = converted[i].valueRef();
+                    }
+                    i++;
+                }
+                jni = setProperties(context.ctxRef(), valueRef, nameRefs, types, numbers,
+                        references, strings, attributes);
+            }
+        };
+        context.sync(runnable);
+        if (runnable.jni.exception != 0) {
+            context.throwJSException(new JSException(new JSValue(runnable.jni.exception, context)));
+        }
+    }
+
+    /**
+     * Sets several properties at once.  No JSProperty attributes are set.
+     *
+     * @param properties A map of property names to values
+     * @since 3.0
+     */
+    public void setProperties(Map<String,?> properties) {
+        setProperties(properties, JSPropertyAttributeNone);
+    }
+
     /**
      * Returns the property at index 'index'.  Used for arrays.
      *
@@ -376,12 +498,6 @@ public class JSObject extends JSValue {
 
     protected final List<JSObject> zombies = new ArrayList<>();
 
-    @Override
-    protected void finalize() throws Throwable {
-        super.finalize();
-        context.finalizeObject(this);
-    }
-
     protected void setThis(JSObject thiz) {
         this.thiz = thiz;
     }
@@ -425,6 +541,15 @@ public class JSObject extends JSValue {
 
     protected native JNIReturnObject deleteProperty(long ctx, long object, long propertyName);
 
+    protected native JNIReturnObject getProperties(long ctx, long object, long[] propertyNames,
+                                                   int[] types, double[] numbers,
+                                                   long[] references, String[] strings);
+
+    protected native JNIReturnObject setProperties(long ctx, long object, long[] propertyNames,
+                                                   int[] types, double[] numbers,
+                                                   long[] references, String[] strings,
+                                                   int attributes);
+
     protected native JNIReturnObject getPropertyAtIndex(long ctx, long object, int propertyIndex);
 
     protected native JNIReturnObject setPropertyAtIndex(long ctx, long object, int propertyIndex, long value);
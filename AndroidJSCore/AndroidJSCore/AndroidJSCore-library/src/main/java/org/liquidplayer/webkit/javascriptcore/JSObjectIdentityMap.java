@@ -0,0 +1,184 @@
+//
+// JSObjectIdentityMap.java
+// AndroidJSCore project
+//
+// https://github.com/ericwlange/AndroidJSCore/
+//
+// Created by Eric Lange
+//
+/*
+ Copyright (c) 2014-2016 Eric Lange. All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+
+ - Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+
+ - Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package org.liquidplayer.webkit.javascriptcore;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Maps JavaScriptCore object references to the single Java JSObject wrapping each of them.
+ * Keys are primitive longs and values are held weakly.  The map is split into independently
+ * locked segments, so lookups from different threads rarely contend.
+ */
+class JSObjectIdentityMap {
+    private static final int SEGMENT_COUNT = 16;
+
+    private final Segment[] segments = new Segment[SEGMENT_COUNT];
+
+    JSObjectIdentityMap() {
+        for (int i=0; i<SEGMENT_COUNT; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments[(hash >>> 28) & (SEGMENT_COUNT - 1)];
+    }
+
+    /**
+     * Gets the object wrapping 'key'
+     * @param key  the JavaScriptCore object reference
+     * @return the wrapping object, or null if none exists or it has been collected
+     */
+    JSObject get(long key) {
+        int hash = hash(key);
+        return segmentFor(hash).get(key, hash);
+    }
+
+    /**
+     * Associates 'value' with 'key', replacing any previous association
+     * @param key  the JavaScriptCore object reference
+     * @param value  the wrapping object
+     */
+    void put(long key, JSObject value) {
+        int hash = hash(key);
+        segmentFor(hash).put(key, hash, value);
+    }
+
+    /**
+     * Removes the association for 'key', if any
+     * @param key  the JavaScriptCore object reference
+     */
+    void remove(long key) {
+        int hash = hash(key);
+        segmentFor(hash).remove(key, hash, false);
+    }
+
+    /**
+     * Removes the association for 'key' only if its object has been collected.  A live
+     * object which has since been registered under the same reference is left in place.
+     * @param key  the JavaScriptCore object reference
+     */
+    void removeIfCleared(long key) {
+        int hash = hash(key);
+        segmentFor(hash).remove(key, hash, true);
+    }
+
+    /**
+     * An open-addressed table with linear probing.  A null entry marks an empty slot.
+     */
+    private static class Segment {
+        private long[] keys = new long[16];
+        @SuppressWarnings("unchecked")
+        private WeakReference<JSObject>[] values = new WeakReference[16];
+        private int size = 0;
+
+        synchronized JSObject get(long key, int hash) {
+            int i = indexOf(key, hash);
+            return (i < 0) ? null : values[i].get();
+        }
+
+        synchronized void put(long key, int hash, JSObject value) {
+            int i = indexOf(key, hash);
+            if (i >= 0) {
+                values[i] = new WeakReference<>(value);
+                return;
+            }
+            if ((size + 1) * 4 > keys.length * 3) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            for (i = hash & mask; values[i] != null; i = (i + 1) & mask);
+            keys[i] = key;
+            values[i] = new WeakReference<>(value);
+            size++;
+        }
+
+        synchronized void remove(long key, int hash, boolean onlyIfCleared) {
+            int i = indexOf(key, hash);
+            if (i < 0 || (onlyIfCleared && values[i].get() != null)) return;
+            values[i] = null;
+            size--;
+            // Shift later entries of the probe sequence back into the hole
+            int mask = keys.length - 1;
+            for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+                int k = hash(keys[j]) & mask;
+                if ((j > i) ? (k <= i || k > j) : (k <= i && k > j)) {
+                    keys[i] = keys[j];
+                    values[i] = values[j];
+                    values[j] = null;
+                    i = j;
+                }
+            }
+        }
+
+        private int indexOf(long key, int hash) {
+            int mask = keys.length - 1;
+            for (int i = hash & mask; values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) return i;
+            }
+            return -1;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void resize() {
+            long[] oldKeys = keys;
+            WeakReference<JSObject>[] oldValues = values;
+            // Drop collected entries while rehashing; only grow if the live entries need it
+            int live = 0;
+            for (WeakReference<JSObject> value : oldValues) {
+                if (value != null && value.get() != null) live++;
+            }
+            int capacity = oldKeys.length;
+            if ((live + 1) * 2 > capacity) capacity *= 2;
+            keys = new long[capacity];
+            values = new WeakReference[capacity];
+            size = 0;
+            int mask = capacity - 1;
+            for (int j=0; j<oldKeys.length; j++) {
+                if (oldValues[j] == null || oldValues[j].get() == null) continue;
+                int i;
+                for (i = hash(oldKeys[j]) & mask; values[i] != null; i = (i + 1) & mask);
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+                size++;
+            }
+        }
+    }
+}
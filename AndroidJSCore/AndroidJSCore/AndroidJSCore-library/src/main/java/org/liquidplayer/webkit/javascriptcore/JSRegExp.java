@@ -54,6 +54,7 @@ public class JSRegExp extends JSObject {
                 new JSValue(context,flags).valueRef(),
         };
         valueRef = makeRegExp(context.ctxRef(), args).reference;
+        context.trackReference(this);
     }
     /**
      * Creates a new JavaScript regular expression
@@ -68,6 +69,7 @@ public class JSRegExp extends JSObject {
         };
         JNIReturnObject jni = makeRegExp(context.ctxRef(), args);
         valueRef = makeRegExp(context.ctxRef(), args).reference;
+        context.trackReference(this);
     }
 
     /**
@@ -43,9 +43,9 @@ public abstract class JSTypedArray<T> extends JSBaseArray<T> {
 
     protected JSTypedArray(JSContext ctx, int length, String jsConstructor, Class<T> cls) {
         super(ctx,cls);
-        JSFunction constructor = new JSFunction(context,"_" + jsConstructor,new String[] {"length"},
-                "return new " + jsConstructor + "(length);",
-                null, 0);
+        JSFunction constructor = context.helperFunction("_" + jsConstructor,
+                new String[] {"length"},
+                "return new " + jsConstructor + "(length);");
         JSValue newArray = constructor.call(null,length);
         valueRef = newArray.valueRef();
         protect(context.ctxRef(), valueRef);
@@ -54,9 +54,9 @@ public abstract class JSTypedArray<T> extends JSBaseArray<T> {
 
     protected JSTypedArray(JSTypedArray typedArray, String jsConstructor, Class<T> cls) {
         super(typedArray.context, cls);
-        JSFunction constructor = new JSFunction(context,"_" + jsConstructor,new String[] {"tarr"},
-                "return new " + jsConstructor + "(tarr);",
-                null, 0);
+        JSFunction constructor = context.helperFunction("_" + jsConstructor + "1",
+                new String[] {"tarr"},
+                "return new " + jsConstructor + "(tarr);");
         JSValue newArray = constructor.call(null,typedArray);
         valueRef = newArray.valueRef();
         protect(context.ctxRef(), valueRef);
@@ -66,9 +66,9 @@ public abstract class JSTypedArray<T> extends JSBaseArray<T> {
     protected JSTypedArray(JSContext ctx, Object object, String jsConstructor, Class<T> cls) {
         super(ctx,cls);
         context = ctx;
-        JSFunction constructor = new JSFunction(context,"_" + jsConstructor,new String[] {"obj"},
-                "return new " + jsConstructor + "(obj);",
-                null, 0);
+        JSFunction constructor = context.helperFunction("_" + jsConstructor + "2",
+                new String[] {"obj"},
+                "return new " + jsConstructor + "(obj);");
         JSValue newArray = constructor.call(null,object);
         valueRef = newArray.valueRef();
         protect(context.ctxRef(), valueRef);
@@ -78,10 +78,9 @@ public abstract class JSTypedArray<T> extends JSBaseArray<T> {
     protected JSTypedArray(JSArrayBuffer buffer, int byteOffset, int length, String jsConstructor,
                         Class<T> cls) {
         super(buffer.getJSObject().getContext(),cls);
-        JSFunction constructor = new JSFunction(context,"_" + jsConstructor,
+        JSFunction constructor = context.helperFunction("_" + jsConstructor + "3",
                 new String[] {"buffer,byteOffset,length"},
-                "return new " + jsConstructor + "(buffer,byteOffset,length);",
-                null, 0);
+                "return new " + jsConstructor + "(buffer,byteOffset,length);");
         JSValue newArray = constructor.call(null,buffer.getJSObject(),byteOffset,length);
         valueRef = newArray.valueRef();
         protect(context.ctxRef(), valueRef);
@@ -90,10 +89,9 @@ public abstract class JSTypedArray<T> extends JSBaseArray<T> {
     protected JSTypedArray(JSArrayBuffer buffer, int byteOffset, String jsConstructor,
                         Class<T> cls) {
         super(buffer.getJSObject().getContext(),cls);
-        JSFunction constructor = new JSFunction(context,"_" + jsConstructor,
+        JSFunction constructor = context.helperFunction("_" + jsConstructor + "4",
                 new String[] {"buffer,byteOffset"},
-                "return new " + jsConstructor + "(buffer,byteOffset);",
-                null, 0);
+                "return new " + jsConstructor + "(buffer,byteOffset);");
         JSValue newArray = constructor.call(null,buffer.getJSObject(),byteOffset);
         valueRef = newArray.valueRef();
         protect(context.ctxRef(), valueRef);
@@ -101,10 +99,9 @@ public abstract class JSTypedArray<T> extends JSBaseArray<T> {
     }
     protected JSTypedArray(JSArrayBuffer buffer, String jsConstructor, Class<T> cls) {
         super(buffer.getJSObject().getContext(),cls);
-        JSFunction constructor = new JSFunction(context,"_" + jsConstructor,
+        JSFunction constructor = context.helperFunction("_" + jsConstructor + "5",
                 new String[] {"buffer"},
-                "return new " + jsConstructor + "(buffer);",
-                null, 0);
+                "return new " + jsConstructor + "(buffer);");
         JSValue newArray = constructor.call(null,buffer.getJSObject());
         valueRef = newArray.valueRef();
         protect(context.ctxRef(), valueRef);
@@ -199,21 +196,75 @@ public abstract class JSTypedArray<T> extends JSBaseArray<T> {
 
     @Override
     protected JSValue arrayElement(final int index) {
-        JSFunction getElement = new JSFunction(context,"_getElement",new String[]{"thiz","index"},
-                "return thiz[index]",
-                null, 0);
+        JSFunction getElement = context.helperFunction("_getElement",new String[]{"thiz","index"},
+                "return thiz[index]");
         return getElement.call(null,this,index);
     }
 
     @Override
     protected void arrayElement(final int index, final T value) {
-        JSFunction setElement = new JSFunction(context,"_setElement",
+        JSFunction setElement = context.helperFunction("_setElement",
                 new String[]{"thiz","index","value"},
-                "thiz[index] = value",
-                null, 0);
+                "thiz[index] = value");
         setElement.call(null,this,index,value);
     }
 
+    private abstract class JNIReturnClass implements Runnable {
+        JNIReturnObject jni;
+    }
+
+    private int absoluteOffset(int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > size()) {
+            throw new IndexOutOfBoundsException();
+        }
+        for (JSBaseArray<T> list = this; list.mSuperList != null; list = list.mSuperList) {
+            offset += list.mLeftBuffer;
+        }
+        return offset;
+    }
+
+    /**
+     * Reads 'values.length' elements starting at 'offset' in a single call into JavaScriptCore.
+     * Used by the primitive bulk getters of the subclasses.
+     * @param offset  the index of the first element to read
+     * @param values  the array to fill
+     * @since 3.0
+     */
+    protected void getElements(int offset, final double[] values) {
+        final int start = absoluteOffset(offset, values.length);
+        JNIReturnClass runnable = new JNIReturnClass() {
+            @Override
+            public void run() {
+                jni = getElements(context.ctxRef(), valueRef, start, values);
+            }
+        };
+        context.sync(runnable);
+        if (runnable.jni.exception != 0) {
+            context.throwJSException(new JSException(new JSValue(runnable.jni.exception, context)));
+        }
+    }
+
+    /**
+     * Writes 'values' starting at element 'offset' in a single call into JavaScriptCore.
+     * Used by the primitive bulk setters of the subclasses.
+     * @param offset  the index of the first element to write
+     * @param values  the values to write
+     * @since 3.0
+     */
+    protected void setElements(int offset, final double[] values) {
+        final int start = absoluteOffset(offset, values.length);
+        JNIReturnClass runnable = new JNIReturnClass() {
+            @Override
+            public void run() {
+                jni = setElements(context.ctxRef(), valueRef, start, values);
+            }
+        };
+        context.sync(runnable);
+        if (runnable.jni.exception != 0) {
+            context.throwJSException(new JSException(new JSValue(runnable.jni.exception, context)));
+        }
+    }
+
     /**
      * Always throws UnsupportedOperationException.  Typed Arrays operate on a fixed
      * JSArrayBuffer.  Items cannot be added, inserted or removed, only modified.
@@ -228,12 +279,19 @@ public abstract class JSTypedArray<T> extends JSBaseArray<T> {
 
     @SuppressWarnings("unchecked")
     protected JSTypedArray<T> subarray(int begin, int end) {
-        JSValue subarray = property("subarray").toFunction().call(this,begin,end).toObject();
+        JSValue subarray = context.helperFunction("_subarray",
+                new String[] {"thiz","begin","end"},
+                "return thiz.subarray(begin,end);").call(null,this,begin,end).toObject();
         return (JSTypedArray<T>) subarray.toJSArray();
     }
     @SuppressWarnings("unchecked")
     protected JSTypedArray<T> subarray(int begin) {
-        JSValue subarray = property("subarray").toFunction().call(this,begin).toObject();
+        JSValue subarray = context.helperFunction("_subarray1",
+                new String[] {"thiz","begin"},
+                "return thiz.subarray(begin);").call(null,this,begin).toObject();
         return (JSTypedArray<T>) subarray.toJSArray();
     }
+
+    protected native JNIReturnObject getElements(long ctx, long object, int offset, double[] values);
+    protected native JNIReturnObject setElements(long ctx, long object, int offset, double[] values);
 }
@@ -32,13 +32,19 @@
 */
 package org.liquidplayer.webkit.javascriptcore;
 
-import android.os.AsyncTask;
-import android.os.Looper;
 import android.util.Log;
 
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * A JavaScript value
@@ -69,65 +75,178 @@ public class JSValue {
         public long exception;
     }
 
+    /* JavaScriptCore value types, as returned by JSValueGetType() */
+    protected static final int JSTypeUndefined = 0;
+    protected static final int JSTypeNull = 1;
+    protected static final int JSTypeBoolean = 2;
+    protected static final int JSTypeNumber = 3;
+    protected static final int JSTypeString = 4;
+    protected static final int JSTypeObject = 5;
+
+    /**
+     * Serializes all access to a JavaScriptCore context onto a single, long-lived thread.
+     * Work submitted from any other thread is handed off through a lock-free queue and the
+     * caller parks until it completes.  Work submitted from the JS thread itself (e.g. from
+     * within a callback) is run immediately.
+     */
     protected static class JSWorkerQueue {
+        /**
+         * Creates a worker queue which owns its own JS thread
+         * @param monitor  Runs on the JS thread after each task
+         */
         public JSWorkerQueue(final Runnable monitor) {
+            this(monitor, null);
+        }
+        /**
+         * Creates a worker queue which runs its tasks on the thread of another queue.  Used
+         * to keep all of the contexts in a context group on the same thread.
+         * @param monitor  Runs on the JS thread after each task
+         * @param shared  The queue whose thread to share, or null to create a new thread
+         */
+        public JSWorkerQueue(final Runnable monitor, final JSWorkerQueue shared) {
             mMonitor = monitor;
+            if (shared == null) {
+                mThread = new JSThread();
+                mThread.start();
+                mOwner = true;
+            } else {
+                mThread = shared.mThread;
+                mOwner = false;
+            }
         }
         final Runnable mMonitor;
+        private final JSThread mThread;
+        private final boolean mOwner;
+
+        private static class JSThread extends Thread {
+            private final ConcurrentLinkedQueue<Runnable> mTasks = new ConcurrentLinkedQueue<>();
+            private volatile boolean mQuit = false;
+
+            JSThread() {
+                super("JSWorkerQueue");
+                setDaemon(true);
+            }
+
+            void post(Runnable task) {
+                mTasks.offer(task);
+                LockSupport.unpark(this);
+            }
+
+            void quit() {
+                mQuit = true;
+                LockSupport.unpark(this);
+            }
 
-        private class JSTask extends AsyncTask<Runnable, Void, JSException> {
             @Override
-            public JSException doInBackground(Runnable ... params) {
+            public void run() {
+                while (true) {
+                    Runnable task = mTasks.poll();
+                    if (task == null) {
+                        if (mQuit) break;
+                        LockSupport.park(this);
+                    } else {
+                        task.run();
+                    }
+                }
+            }
+        }
+
+        private class JSTask implements Runnable {
+            JSTask(Runnable runnable, Thread waiter) {
+                mRunnable = runnable;
+                mWaiter = waiter;
+            }
+            private final Runnable mRunnable;
+            private final Thread mWaiter;
+            private Throwable mError = null;
+            private volatile boolean mDone = false;
+
+            @Override
+            public void run() {
                 try {
-                    params[0].run();
+                    mRunnable.run();
                     mMonitor.run();
-                } catch (JSException e) {
-                    return e;
+                } catch (Throwable e) {
+                    mError = e;
+                } finally {
+                    mDone = true;
+                    if (mWaiter != null) {
+                        LockSupport.unpark(mWaiter);
+                    } else if (mError != null) {
+                        Log.e("JSWorkerQueue", mError.toString());
+                    }
                 }
-                return null;
             }
         }
 
+        private boolean isInline() {
+            return Thread.currentThread() == mThread || mThread.mQuit;
+        }
+
         public void sync(final Runnable runnable) {
-            if (Looper.myLooper() == Looper.getMainLooper()) {
-                try {
-                    JSException e = new JSTask().executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR, runnable).get();
-                    if (e != null) throw e;
-                } catch (ExecutionException e) {
-                    Log.e("JSWorkerQueue", e.getMessage());
-                } catch (InterruptedException e) {
-                    Thread.interrupted();
-                }
-            } else {
+            if (isInline()) {
                 runnable.run();
                 mMonitor.run();
+                return;
+            }
+            JSTask task = new JSTask(runnable, Thread.currentThread());
+            mThread.post(task);
+            boolean interrupted = false;
+            while (!task.mDone) {
+                LockSupport.park(task);
+                if (Thread.interrupted()) interrupted = true;
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (task.mError instanceof RuntimeException) {
+                throw (RuntimeException) task.mError;
+            } else if (task.mError instanceof Error) {
+                throw (Error) task.mError;
             }
         }
 
         public void async(final Runnable runnable) {
-            if (Looper.myLooper() == Looper.getMainLooper()) {
-                new JSTask().executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR, runnable);
-            } else {
+            if (isInline()) {
                 runnable.run();
                 mMonitor.run();
+            } else {
+                mThread.post(new JSTask(runnable, null));
             }
         }
 
         public void quit() {
-
+            if (mOwner) {
+                mThread.quit();
+            }
         }
     }
 
     protected static class JSString {
 
-        private static final JSWorkerQueue workerQueue = new JSWorkerQueue(new Runnable() {
-            @Override
-            public void run() {
+        private static class JSStringReference extends PhantomReference<JSString> {
+            JSStringReference(JSString string, ReferenceQueue<JSString> queue) {
+                super(string, queue);
+                stringRef = string.stringRef;
             }
-        });
+            final long stringRef;
+        }
 
-        private abstract class JNIStringReturnClass implements Runnable {
-            String string;
+        private static final ReferenceQueue<JSString> referenceQueue = new ReferenceQueue<>();
+        private static final Set<JSStringReference> references =
+                Collections.newSetFromMap(new ConcurrentHashMap<JSStringReference, Boolean>());
+
+        /**
+         * Collects the references of all strings which have become unreachable since the last
+         * call.  The caller takes ownership of the references and must release them.
+         * @param deadStrings  The list to which to add the string references
+         */
+        static void drainReferences(List<Long> deadStrings) {
+            Reference<? extends JSString> ref;
+            while ((ref = referenceQueue.poll()) != null) {
+                references.remove(ref);
+                deadStrings.add(((JSStringReference) ref).stringRef);
+            }
         }
 
         protected Long stringRef;
@@ -140,12 +259,8 @@ public class JSValue {
         public JSString(final String s) {
             if (s==null) stringRef = 0L;
             else {
-                workerQueue.sync(new Runnable() {
-                    @Override
-                    public void run() {
-                        stringRef = createWithCharacters(s);
-                    }
-                });
+                stringRef = createWithCharacters(s);
+                references.add(new JSStringReference(this, referenceQueue));
             }
         }
         /**
@@ -154,24 +269,13 @@ public class JSValue {
          */
         public JSString(Long stringRef) {
             this.stringRef = stringRef;
-        }
-        @Override
-        protected void finalize() throws Throwable {
-            super.finalize();
             if (stringRef != 0)
-                release(stringRef);
+                references.add(new JSStringReference(this, referenceQueue));
         }
 
         @Override
         public String toString() {
-            JNIStringReturnClass payload = new JNIStringReturnClass() {
-                @Override
-                public void run() {
-                    string = JSString.this.toString(stringRef);
-                }
-            };
-            workerQueue.sync(payload);
-            return payload.string;
+            return toString(stringRef);
         }
 
         /**
@@ -199,6 +303,47 @@ public class JSValue {
         protected native boolean isEqualToUTF8CString(long a, String b);
     }
 
+    /**
+     * A bounded cache of JavaScript strings keyed by their Java value.  Used to intern
+     * property names so that frequently used names are created once and stay alive, rather
+     * than being re-created and finalized on every property access.  The least recently used
+     * string is dropped when the cache is full.
+     */
+    protected static class JSStringCache {
+        /**
+         * The default number of strings held by a cache
+         */
+        public static final int DEFAULT_CAPACITY = 512;
+
+        /**
+         * Creates a new string cache
+         * @param capacity  The maximum number of strings to hold
+         */
+        public JSStringCache(final int capacity) {
+            mCache = new LinkedHashMap<String, JSString>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, JSString> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+        private final LinkedHashMap<String, JSString> mCache;
+
+        /**
+         * Gets the JavaScript string for 's', creating it if it is not already cached
+         * @param s  The Java string
+         * @return  The cached JavaScript string
+         */
+        public synchronized JSString intern(final String s) {
+            JSString string = mCache.get(s);
+            if (string == null) {
+                string = new JSString(s);
+                mCache.put(s, string);
+            }
+            return string;
+        }
+    }
+
     private abstract class JNIReturnClass implements Runnable {
         JNIReturnObject jni;
     }
@@ -228,6 +373,7 @@ public class JSValue {
                 valueRef = makeUndefined(context.ctxRef());
             }
         });
+        context.trackReference(this);
     }
     /**
      * Creates a new JavaScript value from a Java value.  Classes supported are:
@@ -279,6 +425,7 @@ public class JSValue {
                 }
             }
         });
+        context.trackReference(this);
     }
 
     /**
@@ -301,13 +448,8 @@ public class JSValue {
                 }
             }
         });
+        context.trackReference(this);
     }
-    @Override
-    protected void finalize() throws Throwable {
-        super.finalize();
-        unprotect();
-    }
-
     /* Testers */
     /**
      * Tests whether the value is undefined
@@ -729,12 +871,10 @@ public class JSValue {
         return valueRef;
     }
 
-    protected void unprotect() {
-        if (isProtected && !context.isDefunct)
-            context.markForUnprotection(valueRef());
-        isProtected = false;
-    }
-    private boolean isProtected = true;
+    /**
+     * Set once this value has been registered with its context for reclamation
+     */
+    boolean isTracked = false;
 
     /* Native functions */
     @SuppressWarnings("unused")
@@ -0,0 +1,116 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova;
+
+import java.io.ByteArrayInputStream;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+/**
+ * Holds large binary plugin results so that the WebView can fetch them as raw bytes
+ * instead of receiving them Base64-encoded over the text bridge.
+ *
+ * Each payload is exposed through a one-shot URL under file:///android_asset/, which is
+ * same-origin for apps served from assets. NativeToJsMessageQueue sends only that URL,
+ * and the JS side reads it with a synchronous XHR so that callback ordering is unchanged.
+ */
+public class BinaryBridge {
+    private static final String LOG_TAG = "BinaryBridge";
+
+    static final String PATH_PREFIX = "/android_asset/__cdvbinary__/";
+
+    // Payloads that JS never asked for (e.g. because the page navigated away, or the message
+    // was dropped or coalesced) are dropped after this long.
+    private static final long EXPIRY_MILLIS = 60 * 1000;
+
+    private static final Map<String, Entry> payloads = new ConcurrentHashMap<String, Entry>();
+
+    private static final Handler handler = new Handler(Looper.getMainLooper());
+    private static final AtomicBoolean purgeScheduled = new AtomicBoolean();
+    // Runs while payloads are held, so that they expire even if no further result is registered.
+    private static final Runnable purgeTask = new Runnable() {
+        public void run() {
+            purgeScheduled.set(false);
+            purgeExpired();
+            schedulePurge();
+        }
+    };
+
+    private static class Entry {
+        final byte[] data;
+        final long created;
+        Entry(byte[] data) {
+            this.data = data;
+            this.created = SystemClock.elapsedRealtime();
+        }
+    }
+
+    /**
+     * Stores data and returns the URL from which JS can fetch it once.
+     */
+    public static String register(byte[] data) {
+        purgeExpired();
+        String token = UUID.randomUUID().toString();
+        payloads.put(token, new Entry(data));
+        schedulePurge();
+        return "file://" + PATH_PREFIX + token;
+    }
+
+    public static boolean isBinaryBridgeUri(Uri uri) {
+        String path = uri.getPath();
+        return "file".equals(uri.getScheme()) && path != null && path.startsWith(PATH_PREFIX);
+    }
+
+    /**
+     * Removes and returns the payload for a URL created by register(), or null if it is
+     * unknown or has already been read.
+     */
+    public static CordovaResourceApi.OpenForReadResult openForRead(Uri uri) {
+        Entry entry = payloads.remove(uri.getPath().substring(PATH_PREFIX.length()));
+        if (entry == null) {
+            LOG.w(LOG_TAG, "Unknown or expired binary payload: " + uri);
+            return null;
+        }
+        return new CordovaResourceApi.OpenForReadResult(uri, new ByteArrayInputStream(entry.data),
+                "application/octet-stream", entry.data.length, null);
+    }
+
+    private static void schedulePurge() {
+        if (!payloads.isEmpty() && purgeScheduled.compareAndSet(false, true)) {
+            handler.postDelayed(purgeTask, EXPIRY_MILLIS);
+        }
+    }
+
+    private static void purgeExpired() {
+        long cutoff = SystemClock.elapsedRealtime() - EXPIRY_MILLIS;
+        for (Iterator<Entry> it = payloads.values().iterator(); it.hasNext(); ) {
+            if (it.next().created < cutoff) {
+                it.remove();
+            }
+        }
+    }
+}
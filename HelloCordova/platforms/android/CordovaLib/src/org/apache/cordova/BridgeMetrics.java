@@ -0,0 +1,255 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Collects latency and throughput figures for the JS <-> native bridge: per service.action
+ * exec() latency, and NativeToJsMessageQueue depth, flushes and delivery delay.
+ *
+ * One instance is shared by a CordovaWebView's PluginManager and message queue. It is
+ * readable from Java via PluginManager.getBridgeMetrics(), and from JS through the
+ * BridgeMetrics plugin (cordova/plugin/android/bridgemetrics).
+ */
+public class BridgeMetrics {
+
+    /**
+     * A count, total and max, plus a histogram of power-of-two millisecond buckets:
+     * <1ms, <2ms, <4ms, ... <1024ms, and >=1024ms.
+     */
+    public static class Histogram {
+        private static final int BUCKET_COUNT = 12;
+
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+        private final long[] buckets = new long[BUCKET_COUNT];
+
+        public synchronized void record(long nanos) {
+            count++;
+            totalNanos += nanos;
+            if (nanos > maxNanos) {
+                maxNanos = nanos;
+            }
+            long millis = nanos / 1000000;
+            int bucket = 0;
+            while (bucket < BUCKET_COUNT - 1 && millis >= (1L << bucket)) {
+                bucket++;
+            }
+            buckets[bucket]++;
+        }
+
+        public synchronized void clear() {
+            count = 0;
+            totalNanos = 0;
+            maxNanos = 0;
+            Arrays.fill(buckets, 0);
+        }
+
+        public synchronized long getCount() {
+            return count;
+        }
+
+        public synchronized JSONObject toJSON() throws JSONException {
+            JSONObject ret = new JSONObject();
+            ret.put("count", count);
+            ret.put("totalMs", totalNanos / 1e6);
+            ret.put("maxMs", maxNanos / 1e6);
+            ret.put("meanMs", count == 0 ? 0 : totalNanos / 1e6 / count);
+            JSONObject histogram = new JSONObject();
+            for (int i = 0; i < BUCKET_COUNT; ++i) {
+                if (buckets[i] != 0) {
+                    histogram.put(i == BUCKET_COUNT - 1 ? ">=" + (1L << (i - 1)) : "<" + (1L << i), buckets[i]);
+                }
+            }
+            ret.put("histogramMs", histogram);
+            return ret;
+        }
+    }
+
+    /**
+     * Flush figures for one bridge mode.
+     */
+    private static class FlushStats {
+        long flushes;
+        long messages;
+        long chars;
+        long lastFlushNanos;
+        final Histogram interval = new Histogram();
+
+        synchronized void record(int messageCount, int encodedChars, long now) {
+            if (flushes > 0) {
+                interval.record(now - lastFlushNanos);
+            }
+            lastFlushNanos = now;
+            flushes++;
+            messages += messageCount;
+            chars += encodedChars;
+        }
+
+        synchronized JSONObject toJSON() throws JSONException {
+            JSONObject ret = new JSONObject();
+            ret.put("flushes", flushes);
+            ret.put("messages", messages);
+            ret.put("encodedChars", chars);
+            ret.put("interval", interval.toJSON());
+            return ret;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Histogram> execLatency = new ConcurrentHashMap<String, Histogram>();
+    private final ConcurrentHashMap<String, FlushStats> flushStats = new ConcurrentHashMap<String, FlushStats>();
+    private final Histogram deliveryLatency = new Histogram();
+    private final ConcurrentHashMap<String, Long> pluginInitNanos = new ConcurrentHashMap<String, Long>();
+
+    private long enqueuedMessages;
+    private int queueDepth;
+    private int maxQueueDepth;
+
+    /**
+     * Records how long a plugin's execute() took.
+     */
+    public void recordExec(String service, String action, long nanos) {
+        String key = service + "." + action;
+        Histogram histogram = execLatency.get(key);
+        if (histogram == null) {
+            histogram = new Histogram();
+            Histogram existing = execLatency.putIfAbsent(key, histogram);
+            if (existing != null) {
+                histogram = existing;
+            }
+        }
+        histogram.record(nanos);
+    }
+
+    /**
+     * Records how long a plugin took to be instantiated and initialized.
+     */
+    public void recordPluginInit(String service, long nanos) {
+        pluginInitNanos.put(service, nanos);
+    }
+
+    /**
+     * Records that a message was queued, leaving the queue depth at depth.
+     */
+    public synchronized void recordEnqueue(int depth) {
+        enqueuedMessages++;
+        queueDepth = depth;
+        if (depth > maxQueueDepth) {
+            maxQueueDepth = depth;
+        }
+    }
+
+    /**
+     * Records a flush of messageCount messages, encoded into encodedChars chars, by the named
+     * bridge mode, leaving the queue depth at depth.
+     */
+    public void recordFlush(String bridgeMode, int messageCount, int encodedChars, int depth) {
+        FlushStats stats = flushStats.get(bridgeMode);
+        if (stats == null) {
+            stats = new FlushStats();
+            FlushStats existing = flushStats.putIfAbsent(bridgeMode, stats);
+            if (existing != null) {
+                stats = existing;
+            }
+        }
+        stats.record(messageCount, encodedChars, System.nanoTime());
+        synchronized (this) {
+            queueDepth = depth;
+        }
+    }
+
+    /**
+     * Records the time between a message being queued and being encoded for sending to JS.
+     */
+    public void recordDelivery(long nanos) {
+        deliveryLatency.record(nanos);
+    }
+
+    /**
+     * Returns the exec() latency histogram for a service.action, or null if it was never called.
+     */
+    public Histogram getExecLatency(String service, String action) {
+        return execLatency.get(service + "." + action);
+    }
+
+    public Histogram getDeliveryLatency() {
+        return deliveryLatency;
+    }
+
+    public synchronized int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public synchronized int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    /**
+     * Returns a snapshot of all figures.
+     */
+    public JSONObject toJSON() throws JSONException {
+        JSONObject ret = new JSONObject();
+        JSONObject exec = new JSONObject();
+        for (Map.Entry<String, Histogram> entry : execLatency.entrySet()) {
+            exec.put(entry.getKey(), entry.getValue().toJSON());
+        }
+        ret.put("exec", exec);
+
+        JSONObject pluginInit = new JSONObject();
+        for (Map.Entry<String, Long> entry : pluginInitNanos.entrySet()) {
+            pluginInit.put(entry.getKey(), entry.getValue() / 1e6);
+        }
+        ret.put("pluginInitMs", pluginInit);
+
+        JSONObject queue = new JSONObject();
+        synchronized (this) {
+            queue.put("enqueued", enqueuedMessages);
+            queue.put("depth", queueDepth);
+            queue.put("maxDepth", maxQueueDepth);
+        }
+        queue.put("delivery", deliveryLatency.toJSON());
+        JSONObject flushes = new JSONObject();
+        for (Map.Entry<String, FlushStats> entry : flushStats.entrySet()) {
+            flushes.put(entry.getKey(), entry.getValue().toJSON());
+        }
+        queue.put("flushes", flushes);
+        ret.put("queue", queue);
+        return ret;
+    }
+
+    /**
+     * Clears all figures, except the current queue depth.
+     */
+    public void reset() {
+        execLatency.clear();
+        flushStats.clear();
+        deliveryLatency.clear();
+        synchronized (this) {
+            enqueuedMessages = 0;
+            maxQueueDepth = queueDepth;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova;
+
+import java.util.concurrent.ExecutorService;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Exposes the bridge's BridgeMetrics, and the BridgeModeSelector's decision, to JavaScript via
+ * cordova/plugin/android/bridgemetrics.
+ */
+public class BridgeMetricsPlugin extends CordovaPlugin {
+
+    public static final String PLUGIN_NAME = "BridgeMetrics";
+    // Sent by BridgeModeSelector's probes.
+    static final String ACTION_PROBE_ACK = "probeAck";
+
+    @Override
+    public boolean execute(String action, JSONArray args, CallbackContext callbackContext) throws JSONException {
+        BridgeMetrics metrics = webView.getPluginManager().getBridgeMetrics();
+        if (action.equals("get")) {
+            if (metrics == null) {
+                callbackContext.error("Bridge metrics are disabled. Set the BridgeMetrics preference to enable them.");
+            } else {
+                JSONObject ret = metrics.toJSON();
+                ExecutorService threadPool = cordova.getThreadPool();
+                if (threadPool instanceof CordovaExecutor) {
+                    ret.put("threadPool", ((CordovaExecutor) threadPool).getStats());
+                }
+                callbackContext.success(ret);
+            }
+            return true;
+        }
+        if (action.equals(ACTION_PROBE_ACK)) {
+            BridgeModeSelector selector = webView.getPluginManager().getBridgeModeSelector();
+            if (selector != null) {
+                selector.onProbeAck(args.getInt(0));
+            }
+            // No reply, so that acks add no traffic to the queue being measured.
+            return true;
+        }
+        if (action.equals("bridgeMode")) {
+            BridgeModeSelector selector = webView.getPluginManager().getBridgeModeSelector();
+            if (selector == null) {
+                callbackContext.error("Adaptive bridge mode selection is disabled. Set the AdaptiveBridgeMode preference to enable it.");
+            } else {
+                callbackContext.success(selector.toJSON());
+            }
+            return true;
+        }
+        if (action.equals("reset")) {
+            if (metrics != null) {
+                metrics.reset();
+            }
+            callbackContext.success();
+            return true;
+        }
+        return false;
+    }
+}
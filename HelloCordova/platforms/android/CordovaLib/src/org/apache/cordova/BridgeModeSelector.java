@@ -0,0 +1,491 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova;
+
+import java.util.HashMap;
+import java.util.Locale;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+/**
+ * Picks the native->JS bridge mode from measured round-trip latency instead of a fixed choice.
+ *
+ * Latency is measured with probes: a script, sent through the active mode, that execs back to
+ * the BridgeMetrics plugin with its sequence number. A probe's round trip therefore covers
+ * everything a mode does to deliver a message, including running it in the WebView, plus an
+ * exec() that costs the same for every mode.
+ *
+ * When a page first enables the bridge, each candidate mode is tried in turn: JS is asked to
+ * switch to it (so that both sides agree on the mode), and a few probes are sent through it.
+ * The mode with the lowest mean round trip is then selected. Afterwards, a probe is sent every
+ * few seconds to keep a moving window for the active mode, and the selector moves to another
+ * mode if the active one has become clearly slower than what was last measured for it.
+ *
+ * Polling (mode 0) is never a candidate, and a page that asks for polling is left alone.
+ * Enabled by the AdaptiveBridgeMode preference. The decision is logged, and readable through
+ * the BridgeMetrics plugin (cordova/plugin/android/bridgemetrics).
+ */
+public class BridgeModeSelector {
+    private static final String LOG_TAG = "BridgeModeSelector";
+
+    private static final int WINDOW_SIZE = 16;
+    private static final int MIN_SAMPLES = 4;
+    private static final int PROBE_MESSAGES = 8;
+    private static final long PROBE_START_DELAY_MS = 1000;
+    private static final long PROBE_SPACING_MS = 20;
+    private static final long PROBE_SETTLE_MS = 500;
+    private static final long PROBE_PERIOD_MS = 5000;
+    private static final long SWITCH_INTERVAL_MS = 30000;
+    // Another mode must be at least this much faster before leaving the active one.
+    private static final double SWITCH_MARGIN = 1.25;
+
+    /**
+     * Round trips of the last WINDOW_SIZE probes sent through one mode, and the flushes made
+     * through it.
+     */
+    private static class ModeWindow {
+        private final long[] samples = new long[WINDOW_SIZE];
+        private int next;
+        private int count;
+        private long sum;
+        private long max;
+        private long flushes;
+        private long messages;
+        private long chars;
+
+        void add(long nanos) {
+            if (count == WINDOW_SIZE) {
+                sum -= samples[next];
+            } else {
+                count++;
+            }
+            samples[next] = nanos;
+            sum += nanos;
+            max = Math.max(max, nanos);
+            next = (next + 1) % WINDOW_SIZE;
+        }
+
+        long mean() {
+            return count == 0 ? 0 : sum / count;
+        }
+
+        JSONObject toJSON() throws JSONException {
+            JSONObject ret = new JSONObject();
+            ret.put("samples", count);
+            ret.put("meanRoundTripMs", mean() / 1e6);
+            ret.put("maxRoundTripMs", max / 1e6);
+            ret.put("flushes", flushes);
+            ret.put("messagesPerFlush", flushes == 0 ? 0 : (double) messages / flushes);
+            ret.put("charsPerFlush", flushes == 0 ? 0 : (double) chars / flushes);
+            return ret;
+        }
+    }
+
+    // A probe awaiting its ack.
+    private static class Probe {
+        final int mode;
+        final long sentTime = System.nanoTime();
+
+        Probe(int mode) {
+            this.mode = mode;
+        }
+    }
+
+    private final NativeToJsMessageQueue queue;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private ModeWindow[] windows;
+    private final HashMap<Integer, Probe> pendingProbes = new HashMap<Integer, Probe>();
+    private int nextProbeId;
+    private int activeMode = -1;
+    private int selectedMode = -1;
+    // The candidate mode being probed, or -1 when not probing.
+    private int probeMode = -1;
+    private int probesSent;
+    // Bumped whenever the bridge is disabled or the app is paused, so that runnables posted
+    // earlier do nothing.
+    private int generation;
+    // True while the app is paused. Round trips measured then say nothing about the bridge.
+    private boolean paused;
+    private long lastSwitchTime;
+    private String decision;
+
+    public BridgeModeSelector(NativeToJsMessageQueue queue) {
+        this.queue = queue;
+    }
+
+    /**
+     * Called by the queue after its active mode changes. -1 means the bridge was disabled.
+     */
+    void onBridgeModeChanged(int mode) {
+        int requestMode = -1;
+        synchronized (this) {
+            int previous = activeMode;
+            activeMode = mode;
+            if (mode < 0) {
+                generation++;
+                probeMode = -1;
+                pendingProbes.clear();
+                return;
+            }
+            if (previous >= 0) {
+                if (mode == probeMode) {
+                    probesSent = 0;
+                    post(sendProbe, 0);
+                }
+                return;
+            }
+            // A new page has enabled the bridge.
+            if (mode == 0) {
+                LOG.d(LOG_TAG, "Page requested polling; leaving native->JS mode unchanged");
+                return;
+            }
+            if (selectedMode < 0) {
+                ensureWindows();
+                post(startProbe, PROBE_START_DELAY_MS);
+                return;
+            }
+            if (selectedMode != mode) {
+                requestMode = selectedMode;
+                lastSwitchTime = SystemClock.uptimeMillis();
+            }
+            post(periodicProbe, PROBE_PERIOD_MS);
+        }
+        if (requestMode >= 0) {
+            requestMode(requestMode);
+        }
+    }
+
+    /**
+     * Called when the app is paused. Stops probing, and forgets probes sent so far, since
+     * their round trips would include the time spent paused.
+     */
+    public void onPause() {
+        synchronized (this) {
+            paused = true;
+            generation++;
+            probeMode = -1;
+            pendingProbes.clear();
+        }
+    }
+
+    /**
+     * Called when the app is resumed. Starts probing again where onPause() stopped it: an
+     * interrupted initial probe starts over, and periodic probing of the active mode resumes.
+     */
+    public void onResume() {
+        synchronized (this) {
+            if (!paused) {
+                return;
+            }
+            paused = false;
+            pendingProbes.clear();
+            if (activeMode <= 0 || windows == null) {
+                return;
+            }
+            if (selectedMode < 0) {
+                post(startProbe, PROBE_START_DELAY_MS);
+            } else {
+                post(periodicProbe, PROBE_PERIOD_MS);
+            }
+        }
+    }
+
+    /**
+     * Records a flush through the given mode, for the per-flush throughput figures.
+     */
+    void recordFlush(int mode, int messageCount, int encodedChars) {
+        synchronized (this) {
+            if (windows == null || mode <= 0 || mode >= windows.length) {
+                return;
+            }
+            ModeWindow window = windows[mode];
+            window.flushes++;
+            window.messages += messageCount;
+            window.chars += encodedChars;
+        }
+    }
+
+    /**
+     * Called by the BridgeMetrics plugin when JS acknowledges probe id. Records the probe's
+     * round trip, and switches modes if the active one has become clearly slower than another.
+     */
+    public void onProbeAck(int id) {
+        long now = System.nanoTime();
+        int requestMode = -1;
+        synchronized (this) {
+            Probe probe = pendingProbes.remove(id);
+            if (probe == null || windows == null) {
+                return;
+            }
+            ModeWindow window = windows[probe.mode];
+            window.add(now - probe.sentTime);
+
+            long uptime = SystemClock.uptimeMillis();
+            if (probeMode >= 0 || selectedMode < 0 || probe.mode != activeMode
+                    || window.count < WINDOW_SIZE / 2 || uptime - lastSwitchTime < SWITCH_INTERVAL_MS) {
+                return;
+            }
+            int best = fastestMode();
+            if (best >= 0 && best != probe.mode && windows[best].mean() * SWITCH_MARGIN < window.mean()) {
+                select(best, "active mode slowed to " + formatMean(probe.mode));
+                requestMode = best;
+                lastSwitchTime = uptime;
+            }
+        }
+        if (requestMode >= 0) {
+            requestMode(requestMode);
+        }
+    }
+
+    /**
+     * Returns the mode chosen by the last probe or re-evaluation, or -1 if none has been chosen.
+     */
+    public synchronized int getSelectedMode() {
+        return selectedMode;
+    }
+
+    public JSONObject toJSON() throws JSONException {
+        JSONObject ret = new JSONObject();
+        synchronized (this) {
+            ret.put("active", activeMode < 0 ? JSONObject.NULL : queue.getBridgeModeName(activeMode));
+            ret.put("selected", selectedMode < 0 ? JSONObject.NULL : queue.getBridgeModeName(selectedMode));
+            ret.put("probing", probeMode >= 0);
+            ret.put("decision", decision == null ? JSONObject.NULL : decision);
+            JSONObject modes = new JSONObject();
+            if (windows != null) {
+                for (int i = 1; i < windows.length; ++i) {
+                    modes.put(queue.getBridgeModeName(i), windows[i].toJSON());
+                }
+            }
+            ret.put("modes", modes);
+        }
+        return ret;
+    }
+
+    private final Runnable startProbe = new Runnable() {
+        public void run() {
+            synchronized (BridgeModeSelector.this) {
+                if (activeMode < 0 || selectedMode >= 0 || windows.length < 2) {
+                    return;
+                }
+                LOG.d(LOG_TAG, "Probing native->JS modes");
+            }
+            probeNext(0);
+        }
+    };
+
+    private final Runnable sendProbe = new Runnable() {
+        public void run() {
+            synchronized (BridgeModeSelector.this) {
+                if (probeMode < 0 || activeMode != probeMode) {
+                    return;
+                }
+                probesSent++;
+                if (probesSent < PROBE_MESSAGES) {
+                    post(this, PROBE_SPACING_MS);
+                } else {
+                    final int probed = probeMode;
+                    post(new Runnable() {
+                        public void run() {
+                            probeNext(probed + 1);
+                        }
+                    }, PROBE_SETTLE_MS);
+                }
+            }
+            sendProbe();
+        }
+    };
+
+    // Keeps the active mode's window current once a mode has been selected.
+    private final Runnable periodicProbe = new Runnable() {
+        public void run() {
+            synchronized (BridgeModeSelector.this) {
+                if (activeMode <= 0 || selectedMode < 0) {
+                    return;
+                }
+                post(this, PROBE_PERIOD_MS);
+                if (probeMode >= 0) {
+                    return;
+                }
+            }
+            sendProbe();
+        }
+    };
+
+    /**
+     * Moves the probe to the first candidate at or after mode, or finishes it.
+     */
+    private void probeNext(int mode) {
+        int requestMode = -1;
+        synchronized (this) {
+            if (activeMode < 0) {
+                return;
+            }
+            if (mode >= windows.length) {
+                probeMode = -1;
+                finishProbe();
+                return;
+            }
+            probeMode = Math.max(1, mode);
+            probesSent = 0;
+            if (activeMode == probeMode) {
+                post(sendProbe, 0);
+            } else {
+                requestMode = probeMode;
+                // Skip the mode if JS never switches to it.
+                final int probing = probeMode;
+                post(new Runnable() {
+                    public void run() {
+                        synchronized (BridgeModeSelector.this) {
+                            if (probeMode != probing || activeMode == probing) {
+                                return;
+                            }
+                            LOG.d(LOG_TAG, "No response switching to " + queue.getBridgeModeName(probing));
+                        }
+                        probeNext(probing + 1);
+                    }
+                }, PROBE_SETTLE_MS);
+            }
+        }
+        if (requestMode >= 0) {
+            requestMode(requestMode);
+        }
+    }
+
+    /**
+     * Selects the fastest probed mode. Must be called while holding the lock.
+     */
+    private void finishProbe() {
+        int best = fastestMode();
+        if (best < 0) {
+            LOG.d(LOG_TAG, "Probe collected too few samples; keeping " + queue.getBridgeModeName(activeMode));
+            best = activeMode;
+        }
+        select(best, "probe");
+        lastSwitchTime = SystemClock.uptimeMillis();
+        // Acks that never arrived would otherwise stay pending.
+        pendingProbes.clear();
+        if (best != activeMode) {
+            final int mode = best;
+            post(new Runnable() {
+                public void run() {
+                    requestMode(mode);
+                }
+            }, 0);
+        }
+        post(periodicProbe, PROBE_PERIOD_MS);
+    }
+
+    /**
+     * Returns the candidate with the lowest mean round trip over at least MIN_SAMPLES probes,
+     * or -1. Must be called while holding the lock.
+     */
+    private int fastestMode() {
+        int best = -1;
+        for (int i = 1; i < windows.length; ++i) {
+            if (windows[i].count >= MIN_SAMPLES && (best < 0 || windows[i].mean() < windows[best].mean())) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private void select(int mode, String reason) {
+        selectedMode = mode;
+        StringBuilder sb = new StringBuilder();
+        sb.append("Selected ").append(queue.getBridgeModeName(mode)).append(" (").append(reason).append(");");
+        for (int i = 1; i < windows.length; ++i) {
+            sb.append(' ').append(queue.getBridgeModeName(i)).append('=').append(formatMean(i));
+        }
+        decision = sb.toString();
+        LOG.d(LOG_TAG, decision);
+    }
+
+    private String formatMean(int mode) {
+        ModeWindow window = windows[mode];
+        return window.count < MIN_SAMPLES ? "n/a" : String.format(Locale.ENGLISH, "%.2fms", window.mean() / 1e6);
+    }
+
+    private void ensureWindows() {
+        int count = queue.getBridgeModeCount();
+        if (windows == null || windows.length != count) {
+            windows = new ModeWindow[count];
+            for (int i = 0; i < count; ++i) {
+                windows[i] = new ModeWindow();
+            }
+        }
+    }
+
+    /**
+     * Posts r, dropping it if the bridge is disabled or the app paused before it runs.
+     * Nothing is posted while paused; onResume() restarts probing. Must be called while
+     * holding the lock.
+     */
+    private void post(final Runnable r, long delayMillis) {
+        if (paused) {
+            return;
+        }
+        final int postedGeneration = generation;
+        handler.postDelayed(new Runnable() {
+            public void run() {
+                synchronized (BridgeModeSelector.this) {
+                    if (postedGeneration != generation) {
+                        return;
+                    }
+                }
+                r.run();
+            }
+        }, delayMillis);
+    }
+
+    /**
+     * Sends a probe through the active mode. JS acks it by exec()ing BridgeMetrics.probeAck.
+     * Must not be called while holding the lock.
+     */
+    private void sendProbe() {
+        int id;
+        synchronized (this) {
+            if (activeMode <= 0 || paused) {
+                return;
+            }
+            if (pendingProbes.size() >= WINDOW_SIZE * 4) {
+                // Acks are not arriving, e.g. because the page's CSP blocks eval.
+                pendingProbes.clear();
+            }
+            id = nextProbeId++;
+            pendingProbes.put(id, new Probe(activeMode));
+        }
+        queue.addJavaScript("cordova.require('cordova/exec')(null,null,'" + BridgeMetricsPlugin.PLUGIN_NAME
+                + "','" + BridgeMetricsPlugin.ACTION_PROBE_ACK + "',[" + id + "])");
+    }
+
+    /**
+     * Asks JS to switch modes. JS updates its own state, then calls back into
+     * NativeToJsMessageQueue.setBridgeMode(). Must not be called while holding the lock.
+     */
+    private void requestMode(int mode) {
+        queue.addJavaScript("cordova.require('cordova/exec').setNativeToJsBridgeMode(" + mode + ")");
+    }
+}
@@ -21,6 +21,7 @@ package org.apache.cordova;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Locale;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -66,6 +67,9 @@ public class ConfigXmlParser {
     boolean insideFeature = false;
     String service = "", pluginClass = "", paramType = "";
     boolean onload = false;
+    boolean deferLoad = false;
+    String execThread = null;
+    HashMap<String, String> actionExecThreads = new HashMap<String, String>();
 
     public void parse(XmlPullParser xml) {
         int eventType = -1;
@@ -102,8 +106,19 @@ public class ConfigXmlParser {
                 service = xml.getAttributeValue(null, "value");
             else if (paramType.equals("package") || paramType.equals("android-package"))
                 pluginClass = xml.getAttributeValue(null,"value");
-            else if (paramType.equals("onload"))
-                onload = "true".equals(xml.getAttributeValue(null, "value"));
+            else if (paramType.equals("onload")) {
+                // "deferred" loads the plugin once the first page has finished loading.
+                String value = xml.getAttributeValue(null, "value");
+                deferLoad = "deferred".equals(value);
+                onload = deferLoad || "true".equals(value);
+            }
+            else if (paramType.equals("android-exec-thread")) {
+                String action = xml.getAttributeValue(null, "action");
+                if (action == null)
+                    execThread = xml.getAttributeValue(null, "value");
+                else
+                    actionExecThreads.put(action, xml.getAttributeValue(null, "value"));
+            }
         }
         else if (strNode.equals("preference")) {
             String name = xml.getAttributeValue(null, "name").toLowerCase(Locale.ENGLISH);
@@ -121,12 +136,15 @@ public class ConfigXmlParser {
     public void handleEndTag(XmlPullParser xml) {
         String strNode = xml.getName();
         if (strNode.equals("feature")) {
-            pluginEntries.add(new PluginEntry(service, pluginClass, onload));
+            pluginEntries.add(new PluginEntry(service, pluginClass, onload, deferLoad, execThread, actionExecThreads));
 
             service = "";
             pluginClass = "";
             insideFeature = false;
             onload = false;
+            deferLoad = false;
+            execThread = null;
+            actionExecThreads = new HashMap<String, String>();
         }
     }
 
@@ -18,96 +18,506 @@
 */
 package org.apache.cordova;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
-
-import android.util.Base64;
+import org.json.JSONTokener;
 
 public class CordovaArgs {
     private JSONArray baseArgs;
 
+    /**
+     * For args built from the raw exec() payload: the payload, the bounds of each top-level
+     * element within it, and the elements parsed so far. Elements are parsed on first access.
+     */
+    private final String rawArgs;
+    private int[] starts;
+    private int[] ends;
+    private int length;
+    private Object[] values;
+
     public CordovaArgs(JSONArray args) {
         this.baseArgs = args;
+        this.rawArgs = null;
     }
 
+    /**
+     * Wraps the raw JSON array of exec() arguments. The array is scanned once for element
+     * bounds; elements are only parsed when read, and numbers, booleans, plain strings and
+     * Base64 binary arguments are read straight from the payload.
+     *
+     * @throws JSONException if rawArgs is not a JSON array. Errors within an element are
+     *     reported when it is read.
+     */
+    public CordovaArgs(String rawArgs) throws JSONException {
+        this.rawArgs = rawArgs;
+        scan();
+    }
+
+    /**
+     * Returns the arguments as a JSONArray, parsing any not yet read.
+     */
+    public JSONArray getJSONArray() throws JSONException {
+        if (baseArgs == null) {
+            baseArgs = new JSONArray(rawArgs);
+        }
+        return baseArgs;
+    }
+
+    public int length() {
+        return baseArgs != null ? baseArgs.length() : length;
+    }
 
     // Pass through the basics to the base args.
     public Object get(int index) throws JSONException {
-        return baseArgs.get(index);
+        if (baseArgs != null) {
+            return baseArgs.get(index);
+        }
+        checkIndex(index);
+        return value(index);
     }
 
     public boolean getBoolean(int index) throws JSONException {
-        return baseArgs.getBoolean(index);
+        if (baseArgs == null) {
+            checkIndex(index);
+            if (matches(index, "true")) {
+                return true;
+            } else if (matches(index, "false")) {
+                return false;
+            }
+        }
+        return getJSONArray().getBoolean(index);
     }
 
     public double getDouble(int index) throws JSONException {
-        return baseArgs.getDouble(index);
+        if (baseArgs == null) {
+            checkIndex(index);
+            if (isNumber(index)) {
+                return parseDouble(index);
+            }
+        }
+        return getJSONArray().getDouble(index);
     }
 
     public int getInt(int index) throws JSONException {
-        return baseArgs.getInt(index);
+        if (baseArgs == null) {
+            checkIndex(index);
+            if (isInteger(index)) {
+                return (int) parseLong(index);
+            } else if (isNumber(index)) {
+                return (int) parseDouble(index);
+            }
+        }
+        return getJSONArray().getInt(index);
     }
 
     public JSONArray getJSONArray(int index) throws JSONException {
-        return baseArgs.getJSONArray(index);
+        if (baseArgs == null) {
+            checkIndex(index);
+            Object value = value(index);
+            if (value instanceof JSONArray) {
+                return (JSONArray) value;
+            }
+        }
+        return getJSONArray().getJSONArray(index);
     }
 
     public JSONObject getJSONObject(int index) throws JSONException {
-        return baseArgs.getJSONObject(index);
+        if (baseArgs == null) {
+            checkIndex(index);
+            Object value = value(index);
+            if (value instanceof JSONObject) {
+                return (JSONObject) value;
+            }
+        }
+        return getJSONArray().getJSONObject(index);
     }
 
     public long getLong(int index) throws JSONException {
-        return baseArgs.getLong(index);
+        if (baseArgs == null) {
+            checkIndex(index);
+            if (isInteger(index)) {
+                return parseLong(index);
+            } else if (isNumber(index)) {
+                return (long) parseDouble(index);
+            }
+        }
+        return getJSONArray().getLong(index);
     }
 
     public String getString(int index) throws JSONException {
-        return baseArgs.getString(index);
+        if (baseArgs == null) {
+            checkIndex(index);
+            Object value = value(index);
+            if (value instanceof String) {
+                return (String) value;
+            }
+        }
+        return getJSONArray().getString(index);
     }
 
 
     public Object opt(int index) {
-        return baseArgs.opt(index);
+        if (baseArgs != null) {
+            return baseArgs.opt(index);
+        }
+        if (index < 0 || index >= length) {
+            return null;
+        }
+        try {
+            return value(index);
+        } catch (JSONException e) {
+            return null;
+        }
     }
 
     public boolean optBoolean(int index) {
-        return baseArgs.optBoolean(index);
+        try {
+            return getBoolean(index);
+        } catch (JSONException e) {
+            return false;
+        }
     }
 
     public double optDouble(int index) {
-        return baseArgs.optDouble(index);
+        try {
+            return getDouble(index);
+        } catch (JSONException e) {
+            return Double.NaN;
+        }
     }
 
     public int optInt(int index) {
-        return baseArgs.optInt(index);
+        try {
+            return getInt(index);
+        } catch (JSONException e) {
+            return 0;
+        }
     }
 
     public JSONArray optJSONArray(int index) {
-        return baseArgs.optJSONArray(index);
+        Object value = opt(index);
+        return value instanceof JSONArray ? (JSONArray) value : null;
     }
 
     public JSONObject optJSONObject(int index) {
-        return baseArgs.optJSONObject(index);
+        Object value = opt(index);
+        return value instanceof JSONObject ? (JSONObject) value : null;
     }
 
     public long optLong(int index) {
-        return baseArgs.optLong(index);
+        try {
+            return getLong(index);
+        } catch (JSONException e) {
+            return 0;
+        }
     }
 
     public String optString(int index) {
-        return baseArgs.optString(index);
+        if (baseArgs != null) {
+            return baseArgs.optString(index);
+        }
+        Object value = opt(index);
+        return value == null ? "" : value.toString();
     }
 
     public boolean isNull(int index) {
-        return baseArgs.isNull(index);
+        if (baseArgs != null) {
+            return baseArgs.isNull(index);
+        }
+        return index < 0 || index >= length || matches(index, "null");
     }
 
 
     // The interesting custom helpers.
     public byte[] getArrayBuffer(int index) throws JSONException {
-        String encoded = baseArgs.getString(index);
-        return Base64.decode(encoded, Base64.DEFAULT);
+        byte[] ret = new byte[getArrayBufferLength(index)];
+        getArrayBuffer(index, ByteBuffer.wrap(ret));
+        return ret;
+    }
+
+    /**
+     * Returns the decoded length of a binary (Base64 string) argument.
+     */
+    public int getArrayBufferLength(int index) throws JSONException {
+        CharSequence encoded = encodedArrayBuffer(index);
+        int start = encoded == rawArgs ? starts[index] + 1 : 0;
+        int end = encoded == rawArgs ? ends[index] - 1 : encoded.length();
+        return Base64Decoder.decodedLength(encoded, start, end);
+    }
+
+    /**
+     * Decodes a binary (Base64 string) argument into dst, starting at its position, without
+     * allocating an intermediate array. Returns the number of bytes written.
+     *
+     * @throws java.nio.BufferOverflowException if dst has less than getArrayBufferLength(index) bytes remaining.
+     */
+    public int getArrayBuffer(int index, ByteBuffer dst) throws JSONException {
+        CharSequence encoded = encodedArrayBuffer(index);
+        int start = encoded == rawArgs ? starts[index] + 1 : 0;
+        int end = encoded == rawArgs ? ends[index] - 1 : encoded.length();
+        return Base64Decoder.decode(encoded, start, end, dst);
+    }
+
+    /**
+     * Returns rawArgs if the argument's Base64 text can be decoded in place, and the
+     * unescaped string otherwise.
+     */
+    private CharSequence encodedArrayBuffer(int index) throws JSONException {
+        if (baseArgs == null) {
+            checkIndex(index);
+            if (isPlainString(index)) {
+                return rawArgs;
+            }
+        }
+        return getString(index);
+    }
+
+    private void scan() throws JSONException {
+        int pos = skipWhitespace(0);
+        if (pos >= rawArgs.length() || rawArgs.charAt(pos) != '[') {
+            throw new JSONException("Expected a JSON array: " + rawArgs);
+        }
+        starts = new int[4];
+        ends = new int[4];
+        pos = skipWhitespace(pos + 1);
+        if (pos < rawArgs.length() && rawArgs.charAt(pos) == ']') {
+            values = new Object[0];
+            return;
+        }
+        for (;;) {
+            int start = pos;
+            pos = skipValue(pos);
+            int end = pos;
+            // Trim trailing whitespace of unquoted values.
+            while (end > start && Character.isWhitespace(rawArgs.charAt(end - 1))) {
+                end--;
+            }
+            if (end == start) {
+                throw new JSONException("Missing value at " + start + " in " + rawArgs);
+            }
+            if (length == starts.length) {
+                starts = Arrays.copyOf(starts, length * 2);
+                ends = Arrays.copyOf(ends, length * 2);
+            }
+            starts[length] = start;
+            ends[length] = end;
+            length++;
+            if (pos >= rawArgs.length()) {
+                throw new JSONException("Unterminated array: " + rawArgs);
+            }
+            char c = rawArgs.charAt(pos);
+            if (c == ']') {
+                break;
+            } else if (c != ',') {
+                throw new JSONException("Expected , or ] at " + pos + " in " + rawArgs);
+            }
+            pos = skipWhitespace(pos + 1);
+        }
+        values = new Object[length];
+    }
+
+    /**
+     * Returns the position of the ',' or ']' that ends the value starting at pos.
+     */
+    private int skipValue(int pos) throws JSONException {
+        int depth = 0;
+        int n = rawArgs.length();
+        while (pos < n) {
+            char c = rawArgs.charAt(pos);
+            if (c == '"') {
+                pos = skipString(pos);
+                continue;
+            } else if (c == '[' || c == '{') {
+                depth++;
+            } else if (c == ']' || c == '}') {
+                if (depth == 0) {
+                    return pos;
+                }
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                return pos;
+            }
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Returns the position after the string starting at pos.
+     */
+    private int skipString(int pos) throws JSONException {
+        int n = rawArgs.length();
+        for (int i = pos + 1; i < n; ++i) {
+            char c = rawArgs.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '"') {
+                return i + 1;
+            }
+        }
+        throw new JSONException("Unterminated string at " + pos + " in " + rawArgs);
     }
-}
 
+    private int skipWhitespace(int pos) {
+        while (pos < rawArgs.length() && Character.isWhitespace(rawArgs.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private void checkIndex(int index) throws JSONException {
+        if (index < 0 || index >= length) {
+            throw new JSONException("Index " + index + " out of range [0.." + length + ")");
+        }
+    }
+
+    private Object value(int index) throws JSONException {
+        Object value = values[index];
+        if (value == null) {
+            if (isPlainString(index)) {
+                value = rawArgs.substring(starts[index] + 1, ends[index] - 1);
+            } else {
+                value = new JSONTokener(rawArgs.substring(starts[index], ends[index])).nextValue();
+            }
+            values[index] = value;
+        }
+        return value;
+    }
+
+    private boolean matches(int index, String literal) {
+        return ends[index] - starts[index] == literal.length() && rawArgs.startsWith(literal, starts[index]);
+    }
+
+    // A string without escapes, whose contents are its text.
+    private boolean isPlainString(int index) {
+        int start = starts[index];
+        int end = ends[index];
+        if (rawArgs.charAt(start) != '"' || end - start < 2 || rawArgs.charAt(end - 1) != '"') {
+            return false;
+        }
+        for (int i = start + 1; i < end - 1; ++i) {
+            if (rawArgs.charAt(i) == '\\') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isNumber(int index) {
+        char c = rawArgs.charAt(starts[index]);
+        return c == '-' || (c >= '0' && c <= '9');
+    }
 
+    // An integer literal short enough not to overflow a long.
+    private boolean isInteger(int index) {
+        int start = starts[index];
+        int end = ends[index];
+        if (rawArgs.charAt(start) == '-') {
+            start++;
+        }
+        if (start == end || end - start > 18) {
+            return false;
+        }
+        for (int i = start; i < end; ++i) {
+            char c = rawArgs.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // scan() accepts any run of number-like chars, so a malformed token fails here instead.
+    private double parseDouble(int index) throws JSONException {
+        String token = rawArgs.substring(starts[index], ends[index]);
+        try {
+            return Double.parseDouble(token);
+        } catch (NumberFormatException e) {
+            throw new JSONException("Invalid number at index " + index + ": " + token);
+        }
+    }
+
+    private long parseLong(int index) {
+        int start = starts[index];
+        int end = ends[index];
+        boolean negative = rawArgs.charAt(start) == '-';
+        long ret = 0;
+        for (int i = negative ? start + 1 : start; i < end; ++i) {
+            ret = ret * 10 + (rawArgs.charAt(i) - '0');
+        }
+        return negative ? -ret : ret;
+    }
+
+    /**
+     * Decodes standard Base64, as produced by cordova/base64, skipping whitespace.
+     */
+    private static final class Base64Decoder {
+        private static final byte[] DECODE = new byte[128];
+        static {
+            Arrays.fill(DECODE, (byte) -1);
+            String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+            for (int i = 0; i < alphabet.length(); ++i) {
+                DECODE[alphabet.charAt(i)] = (byte) i;
+            }
+        }
+
+        static int decodedLength(CharSequence s, int start, int end) throws JSONException {
+            int digits = 0;
+            for (int i = start; i < end; ++i) {
+                char c = s.charAt(i);
+                if (c == '=') {
+                    break;
+                }
+                if (c < 128 && DECODE[c] >= 0) {
+                    digits++;
+                } else if (!Character.isWhitespace(c)) {
+                    throw new JSONException("Invalid Base64 character at " + i);
+                }
+            }
+            if (digits % 4 == 1) {
+                throw new JSONException("Truncated Base64 data");
+            }
+            return digits / 4 * 3 + (digits % 4 == 0 ? 0 : digits % 4 - 1);
+        }
+
+        static int decode(CharSequence s, int start, int end, ByteBuffer dst) throws JSONException {
+            int startPosition = dst.position();
+            int bits = 0;
+            int count = 0;
+            for (int i = start; i < end; ++i) {
+                char c = s.charAt(i);
+                if (c == '=') {
+                    break;
+                }
+                int digit = c < 128 ? DECODE[c] : -1;
+                if (digit < 0) {
+                    if (Character.isWhitespace(c)) {
+                        continue;
+                    }
+                    throw new JSONException("Invalid Base64 character at " + i);
+                }
+                bits = (bits << 6) | digit;
+                if (++count == 4) {
+                    dst.put((byte) (bits >> 16));
+                    dst.put((byte) (bits >> 8));
+                    dst.put((byte) bits);
+                    bits = 0;
+                    count = 0;
+                }
+            }
+            if (count == 1) {
+                throw new JSONException("Truncated Base64 data");
+            } else if (count == 2) {
+                dst.put((byte) (bits >> 4));
+            } else if (count == 3) {
+                dst.put((byte) (bits >> 10));
+                dst.put((byte) (bits >> 2));
+            }
+            return dst.position() - startPosition;
+        }
+    }
+}
@@ -68,6 +68,47 @@ public class CordovaBridge {
         }
     }
 
+    /**
+     * Runs several exec() calls in one bridge crossing, and returns the messages they queued.
+     *
+     * @param calls     A JSON array of [service, action, callbackId, argumentsJson] arrays.
+     */
+    public String jsExecBatch(int bridgeSecret, String calls) throws JSONException, IllegalAccessException {
+        if (!verifySecret("execBatch()", bridgeSecret)) {
+            return null;
+        }
+        // See jsExec().
+        if (calls == null) {
+            return "@Null arguments.";
+        }
+
+        jsMessageQueue.setPaused(true);
+        try {
+            CordovaResourceApi.jsThread = Thread.currentThread();
+
+            JSONArray batch = new JSONArray(calls);
+            for (int i = 0; i < batch.length(); ++i) {
+                JSONArray call = batch.getJSONArray(i);
+                // A failing call must not keep the rest of the batch from running.
+                try {
+                    pluginManager.exec(call.getString(0), call.getString(1), call.getString(2), call.getString(3));
+                } catch (Throwable e) {
+                    e.printStackTrace();
+                }
+            }
+            String ret = null;
+            if (!NativeToJsMessageQueue.DISABLE_EXEC_CHAINING) {
+                ret = jsMessageQueue.popAndEncode(false);
+            }
+            return ret;
+        } catch (Throwable e) {
+            e.printStackTrace();
+            return "";
+        } finally {
+            jsMessageQueue.setPaused(false);
+        }
+    }
+
     public void jsSetNativeToJsBridgeMode(int bridgeSecret, int value) throws IllegalAccessException {
         if (!verifySecret("setNativeToJsBridgeMode()", bridgeSecret)) {
             return;
@@ -139,6 +180,21 @@ public class CordovaBridge {
             }
             return "";
         }
+        // Batched exec() calls.
+        else if (defaultValue != null && defaultValue.startsWith("gap_batch:")) {
+            try {
+                int bridgeSecret = Integer.parseInt(defaultValue.substring(10));
+                String r = jsExecBatch(bridgeSecret, message);
+                return r == null ? "" : r;
+            } catch (NumberFormatException e) {
+                e.printStackTrace();
+            } catch (JSONException e) {
+                e.printStackTrace();
+            } catch (IllegalAccessException e) {
+                e.printStackTrace();
+            }
+            return "";
+        }
         // Sets the native->JS bridge mode.
         else if (defaultValue != null && defaultValue.startsWith("gap_bridge_mode:")) {
             try {
@@ -0,0 +1,371 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova;
+
+import android.os.Looper;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The default CordovaInterface.getThreadPool(): a bounded executor with separate lanes for
+ * blocking I/O and CPU-bound work, sized from the number of cores.
+ *
+ * Tasks are tagged with the plugin service whose execute() submitted them, and each lane
+ * takes tasks from its tags in turn, so one busy plugin cannot starve the others. When a
+ * lane's queue is full, the rejection policy applies: CALLER_RUNS (the default) runs the task
+ * on the submitting thread, except on the UI thread where it is queued anyway; ABORT throws
+ * RejectedExecutionException.
+ *
+ * Plugins may hold pool threads with long blocking work (downloads, sockets). When every
+ * thread of a lane has been busy without starting a new task for a second, a submission
+ * adds an overflow thread, up to four times the lane's size. Overflow threads exit once idle.
+ *
+ * Plain execute() and submit() calls use the IO lane.
+ */
+public class CordovaExecutor extends AbstractExecutorService {
+    private static final String TAG = "CordovaExecutor";
+    private static final String DEFAULT_TAG = "default";
+    private static final long KEEP_ALIVE_MILLIS = 30 * 1000;
+    private static final int DEFAULT_QUEUE_CAPACITY = 256;
+    private static final long OVERFLOW_AFTER_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int OVERFLOW_FACTOR = 4;
+
+    public enum Lane { IO, CPU }
+
+    public enum RejectionPolicy { CALLER_RUNS, ABORT }
+
+    // The tag of the plugin call or task running on the current thread.
+    private static final ThreadLocal<String> currentTag = new ThreadLocal<String>();
+
+    private static final class Task {
+        final Runnable runnable;
+        final String tag;
+        final long enqueueTime = System.nanoTime();
+
+        Task(Runnable runnable, String tag) {
+            this.runnable = runnable;
+            this.tag = tag;
+        }
+    }
+
+    private final class LaneQueue {
+        final String name;
+        final int maxThreads;
+        final int capacity;
+        // Per-tag queues, in the order tags are served.
+        final LinkedHashMap<String, ArrayDeque<Task>> queues = new LinkedHashMap<String, ArrayDeque<Task>>();
+        final HashMap<String, Long> submittedByTag = new HashMap<String, Long>();
+        int queued;
+        int threads;
+        int idleThreads;
+        int activeThreads;
+        int threadCount;
+        long completed;
+        long rejected;
+        long waitNanos;
+        long maxWaitNanos;
+        long runNanos;
+        long maxRunNanos;
+        // When a worker of this lane last started or finished a task.
+        long lastProgressTime = System.nanoTime();
+
+        LaneQueue(String name, int maxThreads, int capacity) {
+            this.name = name;
+            this.maxThreads = maxThreads;
+            this.capacity = capacity;
+        }
+
+        // Returns the next task, taking tags in turn. Must hold the lock.
+        Task poll() {
+            Iterator<Map.Entry<String, ArrayDeque<Task>>> it = queues.entrySet().iterator();
+            Map.Entry<String, ArrayDeque<Task>> first = it.next();
+            ArrayDeque<Task> queue = first.getValue();
+            Task task = queue.poll();
+            it.remove();
+            if (!queue.isEmpty()) {
+                // Move the tag to the back of the line.
+                queues.put(first.getKey(), queue);
+            }
+            queued--;
+            return task;
+        }
+
+        void add(Task task) {
+            ArrayDeque<Task> queue = queues.get(task.tag);
+            if (queue == null) {
+                queue = new ArrayDeque<Task>();
+                queues.put(task.tag, queue);
+            }
+            queue.add(task);
+            queued++;
+            Long submitted = submittedByTag.get(task.tag);
+            submittedByTag.put(task.tag, submitted == null ? 1 : submitted + 1);
+        }
+
+        JSONObject toJSON() throws JSONException {
+            JSONObject ret = new JSONObject();
+            ret.put("maxThreads", maxThreads);
+            ret.put("overflowThreads", Math.max(0, threads - maxThreads));
+            ret.put("threads", threads);
+            ret.put("activeThreads", activeThreads);
+            ret.put("queueDepth", queued);
+            ret.put("queueCapacity", capacity);
+            ret.put("completed", completed);
+            ret.put("rejected", rejected);
+            ret.put("meanWaitMs", completed == 0 ? 0 : waitNanos / 1e6 / completed);
+            ret.put("maxWaitMs", maxWaitNanos / 1e6);
+            ret.put("meanRunMs", completed == 0 ? 0 : runNanos / 1e6 / completed);
+            ret.put("maxRunMs", maxRunNanos / 1e6);
+            ret.put("submittedByTag", new JSONObject(submittedByTag));
+            return ret;
+        }
+    }
+
+    private final LaneQueue ioLane;
+    private final LaneQueue cpuLane;
+    private final RejectionPolicy rejectionPolicy;
+    private boolean shutdown;
+
+    /**
+     * Creates an executor with Math.max(4, 2 * cores) I/O threads, one CPU thread per core,
+     * and room for 256 queued tasks per lane.
+     */
+    public CordovaExecutor() {
+        this(Math.max(4, 2 * Runtime.getRuntime().availableProcessors()),
+                Math.max(1, Runtime.getRuntime().availableProcessors()),
+                DEFAULT_QUEUE_CAPACITY, RejectionPolicy.CALLER_RUNS);
+    }
+
+    public CordovaExecutor(int ioThreads, int cpuThreads, int queueCapacity, RejectionPolicy rejectionPolicy) {
+        if (ioThreads < 1 || cpuThreads < 1 || queueCapacity < 1 || rejectionPolicy == null) {
+            throw new IllegalArgumentException();
+        }
+        ioLane = new LaneQueue("io", ioThreads, queueCapacity);
+        cpuLane = new LaneQueue("cpu", cpuThreads, queueCapacity);
+        this.rejectionPolicy = rejectionPolicy;
+    }
+
+    /**
+     * Tags work submitted from the current thread until the returned tag is restored with
+     * exitTag(). PluginManager tags each plugin's execute() with its service name.
+     */
+    public static String enterTag(String tag) {
+        String previous = currentTag.get();
+        currentTag.set(tag);
+        return previous;
+    }
+
+    public static void exitTag(String previous) {
+        if (previous == null) {
+            currentTag.remove();
+        } else {
+            currentTag.set(previous);
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        execute(command, Lane.IO, null);
+    }
+
+    /**
+     * Runs command on the given lane. A null tag uses the current thread's tag.
+     */
+    public void execute(Runnable command, Lane lane, String tag) {
+        if (command == null || lane == null) {
+            throw new NullPointerException();
+        }
+        if (tag == null) {
+            tag = currentTag.get();
+            if (tag == null) {
+                tag = DEFAULT_TAG;
+            }
+        }
+        LaneQueue laneQueue = lane == Lane.CPU ? cpuLane : ioLane;
+        Task task = new Task(command, tag);
+        synchronized (this) {
+            if (shutdown) {
+                throw new RejectedExecutionException("Executor has been shut down");
+            }
+            boolean full = laneQueue.queued >= laneQueue.capacity;
+            boolean stalled = isStalled(laneQueue);
+            if (!full || stalled || Looper.myLooper() == Looper.getMainLooper()) {
+                laneQueue.add(task);
+                if (laneQueue.idleThreads > laneQueue.queued - 1) {
+                    notifyAll();
+                } else if (laneQueue.threads < laneQueue.maxThreads || stalled) {
+                    startWorker(laneQueue);
+                }
+                return;
+            }
+            laneQueue.rejected++;
+        }
+        if (rejectionPolicy == RejectionPolicy.ABORT) {
+            throw new RejectedExecutionException("The " + laneQueue.name + " lane is full");
+        }
+        runTask(laneQueue, task);
+    }
+
+    // Whether every thread of a full-sized lane is stuck on long-running tasks. Must hold the lock.
+    private boolean isStalled(LaneQueue lane) {
+        return lane.idleThreads == 0 && lane.threads >= lane.maxThreads
+                && lane.threads < lane.maxThreads * OVERFLOW_FACTOR
+                && System.nanoTime() - lane.lastProgressTime >= OVERFLOW_AFTER_NANOS;
+    }
+
+    private void startWorker(final LaneQueue lane) {
+        lane.threads++;
+        if (lane.threads > lane.maxThreads) {
+            LOG.d(TAG, "All " + lane.name + " threads are busy; adding overflow thread " + lane.threads);
+        }
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                workerLoop(lane);
+            }
+        }, "Cordova-" + lane.name + "-" + (++lane.threadCount));
+        // Don't inherit the submitting thread's priority, which may be the UI thread's.
+        thread.setPriority(Thread.NORM_PRIORITY);
+        thread.setDaemon(false);
+        thread.start();
+    }
+
+    private void workerLoop(LaneQueue lane) {
+        for (;;) {
+            Task task;
+            synchronized (this) {
+                long deadline = System.currentTimeMillis() + KEEP_ALIVE_MILLIS;
+                while (lane.queued == 0 && !shutdown) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    lane.idleThreads++;
+                    try {
+                        wait(remaining);
+                    } catch (InterruptedException e) {
+                        // Re-check the queue; shutdownNow() also sets shutdown.
+                    } finally {
+                        lane.idleThreads--;
+                    }
+                }
+                if (lane.queued == 0) {
+                    lane.threads--;
+                    notifyAll();
+                    return;
+                }
+                task = lane.poll();
+            }
+            runTask(lane, task);
+        }
+    }
+
+    private void runTask(LaneQueue lane, Task task) {
+        long startTime = System.nanoTime();
+        String previousTag = enterTag(task.tag);
+        synchronized (this) {
+            lane.activeThreads++;
+            lane.lastProgressTime = startTime;
+        }
+        try {
+            task.runnable.run();
+        } catch (Throwable e) {
+            LOG.e(TAG, "Uncaught exception from task of " + task.tag, e);
+        } finally {
+            exitTag(previousTag);
+            long endTime = System.nanoTime();
+            long wait = startTime - task.enqueueTime;
+            long run = endTime - startTime;
+            synchronized (this) {
+                lane.activeThreads--;
+                lane.completed++;
+                lane.lastProgressTime = endTime;
+                lane.waitNanos += wait;
+                lane.runNanos += run;
+                lane.maxWaitNanos = Math.max(lane.maxWaitNanos, wait);
+                lane.maxRunNanos = Math.max(lane.maxRunNanos, run);
+            }
+        }
+    }
+
+    /**
+     * Returns queue depth, thread counts, wait and run times per lane, and tasks per tag.
+     */
+    public synchronized JSONObject getStats() throws JSONException {
+        JSONObject ret = new JSONObject();
+        ret.put(ioLane.name, ioLane.toJSON());
+        ret.put(cpuLane.name, cpuLane.toJSON());
+        return ret;
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        shutdown = true;
+        notifyAll();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        ArrayList<Runnable> pending = new ArrayList<Runnable>();
+        synchronized (this) {
+            shutdown = true;
+            for (LaneQueue lane : new LaneQueue[] { ioLane, cpuLane }) {
+                while (lane.queued > 0) {
+                    pending.add(lane.poll().runnable);
+                }
+            }
+            notifyAll();
+        }
+        return pending;
+    }
+
+    @Override
+    public synchronized boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public synchronized boolean isTerminated() {
+        return shutdown && ioLane.threads == 0 && cpuLane.threads == 0;
+    }
+
+    @Override
+    public synchronized boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!isTerminated()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+}
@@ -30,7 +30,6 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * Default implementation of CordovaInterface.
@@ -50,7 +49,7 @@ public class CordovaInterfaceImpl implements CordovaInterface {
     protected Bundle savedPluginState;
 
     public CordovaInterfaceImpl(Activity activity) {
-        this(activity, Executors.newCachedThreadPool());
+        this(activity, new CordovaExecutor());
     }
 
     public CordovaInterfaceImpl(Activity activity, ExecutorService threadPool) {
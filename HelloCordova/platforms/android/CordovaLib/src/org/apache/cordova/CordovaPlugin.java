@@ -34,11 +34,15 @@ import android.os.Bundle;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Plugins must extend this class and override one of the execute methods.
  */
 public class CordovaPlugin {
+    // Whether each plugin class overrides execute(String, JSONArray, CallbackContext).
+    private static final ConcurrentHashMap<Class<?>, Boolean> takesJSONArrayArgs = new ConcurrentHashMap<Class<?>, Boolean>();
+
     public CordovaWebView webView;
     public CordovaInterface cordova;
     protected CordovaPreferences preferences;
@@ -94,10 +98,28 @@ public class CordovaPlugin {
      * @return                Whether the action was valid.
      */
     public boolean execute(String action, String rawArgs, CallbackContext callbackContext) throws JSONException {
+        if (!takesJSONArrayArgs()) {
+            // Skip building a JSONArray; CordovaArgs parses only the arguments that are read.
+            return execute(action, new CordovaArgs(rawArgs), callbackContext);
+        }
         JSONArray args = new JSONArray(rawArgs);
         return execute(action, args, callbackContext);
     }
 
+    private boolean takesJSONArrayArgs() {
+        Class<?> c = getClass();
+        Boolean ret = takesJSONArrayArgs.get(c);
+        if (ret == null) {
+            try {
+                ret = c.getMethod("execute", String.class, JSONArray.class, CallbackContext.class).getDeclaringClass() != CordovaPlugin.class;
+            } catch (NoSuchMethodException e) {
+                ret = true;
+            }
+            takesJSONArrayArgs.put(c, ret);
+        }
+        return ret;
+    }
+
     /**
      * Executes the request.
      *
@@ -35,12 +35,21 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 /**
  * What this class provides:
@@ -77,6 +86,15 @@ public class CordovaResourceApi {
     public static final String PLUGIN_URI_SCHEME = "cdvplugin";
 
     private static final String[] LOCAL_FILE_PROJECTION = { "_data" };
+
+    // Bytes moved per channel transfer call, so that copies can report progress and be cancelled.
+    private static final long TRANSFER_CHUNK_SIZE = 1024 * 1024;
+    private static final int MIN_COPY_BUFFER_SIZE = 8192;
+    private static final int MAX_COPY_BUFFER_SIZE = 256 * 1024;
+    private static final long PROGRESS_INTERVAL_NANOS = 100 * 1000000L;
+
+    // MIME types by lower-cased file extension. "" records an extension with no known type.
+    private static final ConcurrentHashMap<String, String> mimeTypesByExtension = new ConcurrentHashMap<String, String>();
     
     public static Thread jsThread;
 
@@ -84,6 +102,7 @@ public class CordovaResourceApi {
     private final ContentResolver contentResolver;
     private final PluginManager pluginManager;
     private boolean threadCheckingEnabled = true;
+    private final ResourceCache resourceCache = new ResourceCache(this);
 
 
     public CordovaResourceApi(Context context, PluginManager pluginManager) {
@@ -96,6 +115,13 @@ public class CordovaResourceApi {
         threadCheckingEnabled = value;
     }
 
+    /**
+     * Returns the cache used for responses to WebView requests for file:// and asset URIs.
+     */
+    public ResourceCache getResourceCache() {
+        return resourceCache;
+    }
+
     public boolean isThreadCheckingEnabled() {
         return threadCheckingEnabled;
     }
@@ -211,13 +237,19 @@ public class CordovaResourceApi {
         }
         // Convert the URI string to lower case to ensure compatibility with MimeTypeMap (see CB-2185).
         extension = extension.toLowerCase(Locale.getDefault());
-        if (extension.equals("3ga")) {
-            return "audio/3gpp";
-        } else if (extension.equals("js")) {
-            // Missing from the map :(.
-            return "text/javascript";
+        String mimeType = mimeTypesByExtension.get(extension);
+        if (mimeType == null) {
+            if (extension.equals("3ga")) {
+                mimeType = "audio/3gpp";
+            } else if (extension.equals("js")) {
+                // Missing from the map :(.
+                mimeType = "text/javascript";
+            } else {
+                mimeType = MimeTypeMap.getSingleton().getMimeTypeFromExtension(extension);
+            }
+            mimeTypesByExtension.put(extension, mimeType == null ? "" : mimeType);
         }
-        return MimeTypeMap.getSingleton().getMimeTypeFromExtension(extension);
+        return mimeType == null || mimeType.length() == 0 ? null : mimeType;
     }
     
     /**
@@ -252,6 +284,13 @@ public class CordovaResourceApi {
                 return new OpenForReadResult(uri, inputStream, mimeType, length, null);
             }
             case URI_TYPE_ASSET: {
+                if (BinaryBridge.isBinaryBridgeUri(uri)) {
+                    OpenForReadResult ret = BinaryBridge.openForRead(uri);
+                    if (ret == null) {
+                        throw new FileNotFoundException("Binary payload already read or expired: " + uri);
+                    }
+                    return ret;
+                }
                 String assetPath = uri.getPath().substring(15);
                 AssetFileDescriptor assetFd = null;
                 InputStream inputStream;
@@ -342,37 +381,166 @@ public class CordovaResourceApi {
         return (HttpURLConnection)new URL(uri.toString()).openConnection();
     }
     
+    /**
+     * Receives progress from copyResourceAsync(). Called on the copying thread.
+     */
+    public interface ProgressListener {
+        /**
+         * @param bytesCopied       Bytes copied so far
+         * @param totalBytes        The source's length, or -1 if unknown
+         * @param bytesPerSecond    Average rate since the copy started
+         */
+        void onProgress(long bytesCopied, long totalBytes, long bytesPerSecond);
+    }
+
+    // Tracks a copy's progress and cancellation.
+    private static final class CopyProgress {
+        final ProgressListener listener;
+        final long totalBytes;
+        final long startTime = System.nanoTime();
+        long bytesCopied;
+        long lastReportTime;
+        volatile boolean cancelled;
+
+        CopyProgress(ProgressListener listener, long totalBytes) {
+            this.listener = listener;
+            this.totalBytes = totalBytes;
+        }
+
+        void add(long bytes) throws InterruptedIOException {
+            bytesCopied += bytes;
+            if (cancelled) {
+                throw new InterruptedIOException("Copy cancelled");
+            }
+            if (listener != null) {
+                long now = System.nanoTime();
+                if (now - lastReportTime >= PROGRESS_INTERVAL_NANOS) {
+                    lastReportTime = now;
+                    report(now);
+                }
+            }
+        }
+
+        void finish() {
+            if (listener != null) {
+                report(System.nanoTime());
+            }
+        }
+
+        private void report(long now) {
+            long elapsed = Math.max(1, now - startTime);
+            listener.onProgress(bytesCopied, totalBytes, bytesCopied * 1000000000L / elapsed);
+        }
+    }
+
     // Copies the input to the output in the most efficient manner possible.
     // Closes both streams.
     public void copyResource(OpenForReadResult input, OutputStream outputStream) throws IOException {
         assertBackgroundThread();
+        copy(input, outputStream, new CopyProgress(null, input.length));
+    }
+
+    /**
+     * Copies sourceUri to dstUri on executor, which must not run tasks on the UI or JS thread.
+     * Cancelling the returned future stops the copy; the destination may then be incomplete.
+     *
+     * @param listener  Receives progress at most every 100ms, and once on completion. May be null.
+     * @return A future for the number of bytes copied.
+     */
+    public Future<Long> copyResourceAsync(final Uri sourceUri, final Uri dstUri, Executor executor, ProgressListener listener) {
+        final ProgressListener progressListener = listener;
+        final CopyProgress[] progress = new CopyProgress[1];
+        // Set by cancel(), which may run before call() has published its CopyProgress.
+        final boolean[] cancelRequested = new boolean[1];
+        FutureTask<Long> task = new FutureTask<Long>(new Callable<Long>() {
+            public Long call() throws IOException {
+                OpenForReadResult input = openForRead(sourceUri);
+                OutputStream outputStream;
+                try {
+                    outputStream = openOutputStream(dstUri);
+                } catch (IOException e) {
+                    input.inputStream.close();
+                    throw e;
+                }
+                CopyProgress copyProgress = new CopyProgress(progressListener, input.length);
+                synchronized (progress) {
+                    if (cancelRequested[0]) {
+                        input.inputStream.close();
+                        outputStream.close();
+                        throw new InterruptedIOException("Copy cancelled");
+                    }
+                    progress[0] = copyProgress;
+                }
+                return copy(input, outputStream, copyProgress);
+            }
+        }) {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                synchronized (progress) {
+                    cancelRequested[0] = true;
+                    if (progress[0] != null) {
+                        progress[0].cancelled = true;
+                    }
+                }
+                return super.cancel(mayInterruptIfRunning);
+            }
+        };
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Copies with a channel transfer when either side is backed by a file descriptor, which
+     * includes file, asset and content URIs, and with a growing buffer otherwise.
+     * Closes both streams.
+     */
+    private long copy(OpenForReadResult input, OutputStream outputStream, CopyProgress progress) throws IOException {
         try {
             InputStream inputStream = input.inputStream;
-            if (inputStream instanceof FileInputStream && outputStream instanceof FileOutputStream) {
-                FileChannel inChannel = ((FileInputStream)input.inputStream).getChannel();
-                FileChannel outChannel = ((FileOutputStream)outputStream).getChannel();
-                long offset = 0;
-                long length = input.length;
-                if (input.assetFd != null) {
-                    offset = input.assetFd.getStartOffset();
+            FileChannel inChannel = inputStream instanceof FileInputStream ? ((FileInputStream) inputStream).getChannel() : null;
+            FileChannel outChannel = outputStream instanceof FileOutputStream ? ((FileOutputStream) outputStream).getChannel() : null;
+            if (inChannel != null && input.length >= 0) {
+                // The channel may span a whole APK or file, so read from the asset's own offset.
+                long position = input.assetFd != null ? input.assetFd.getStartOffset() : 0;
+                long end = position + input.length;
+                WritableByteChannel target = outChannel != null ? outChannel : Channels.newChannel(outputStream);
+                while (position < end) {
+                    long n = inChannel.transferTo(position, Math.min(TRANSFER_CHUNK_SIZE, end - position), target);
+                    if (n <= 0) {
+                        break;
+                    }
+                    position += n;
+                    progress.add(n);
                 }
-                // transferFrom()'s 2nd arg is a relative position. Need to set the absolute
-                // position first.
-                inChannel.position(offset);
-                outChannel.transferFrom(inChannel, 0, length);
+            } else if (outChannel != null) {
+                ReadableByteChannel source = Channels.newChannel(inputStream);
+                long position = outChannel.position();
+                for (;;) {
+                    long n = outChannel.transferFrom(source, position, TRANSFER_CHUNK_SIZE);
+                    if (n <= 0) {
+                        break;
+                    }
+                    position += n;
+                    progress.add(n);
+                }
+                outChannel.position(position);
             } else {
-                final int BUFFER_SIZE = 8192;
-                byte[] buffer = new byte[BUFFER_SIZE];
-                
+                // Grow the buffer while reads fill it, so that fast sources take fewer calls.
+                byte[] buffer = new byte[MIN_COPY_BUFFER_SIZE];
                 for (;;) {
-                    int bytesRead = inputStream.read(buffer, 0, BUFFER_SIZE);
-                    
+                    int bytesRead = inputStream.read(buffer, 0, buffer.length);
                     if (bytesRead <= 0) {
                         break;
                     }
                     outputStream.write(buffer, 0, bytesRead);
+                    progress.add(bytesRead);
+                    if (bytesRead == buffer.length && buffer.length < MAX_COPY_BUFFER_SIZE) {
+                        buffer = new byte[buffer.length * 2];
+                    }
                 }
-            }            
+            }
+            progress.finish();
+            return progress.bytesCopied;
         } finally {
             input.inputStream.close();
             if (outputStream != null) {
@@ -36,6 +36,7 @@ import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
@@ -59,6 +60,7 @@ public class CordovaWebViewImpl implements CordovaWebView {
     private CordovaPreferences preferences;
     private CoreAndroid appPlugin;
     private NativeToJsMessageQueue nativeToJsMessageQueue;
+    private int binaryBridgeThreshold;
     private EngineClient engineClient = new EngineClient();
     private boolean hasPausedEver;
 
@@ -100,18 +102,45 @@ public class CordovaWebViewImpl implements CordovaWebView {
         this.preferences = preferences;
         pluginManager = new PluginManager(this, this.cordova, pluginEntries);
         resourceApi = new CordovaResourceApi(engine.getView().getContext(), pluginManager);
+        resourceApi.getResourceCache().setLimits(preferences.getInteger("ResourceCacheSize", 4 * 1024 * 1024),
+                preferences.getInteger("ResourceCacheMaxEntrySize", 256 * 1024));
         nativeToJsMessageQueue = new NativeToJsMessageQueue();
         nativeToJsMessageQueue.addBridgeMode(new NativeToJsMessageQueue.NoOpBridgeMode());
         nativeToJsMessageQueue.addBridgeMode(new NativeToJsMessageQueue.LoadUrlBridgeMode(engine, cordova));
+        binaryBridgeThreshold = preferences.getInteger("BinaryBridgeThreshold", 32 * 1024);
+        nativeToJsMessageQueue.setFragmentSize(preferences.getInteger("BridgeFragmentSize", 256 * 1024));
+        nativeToJsMessageQueue.setFlushInterval(preferences.getInteger("BridgeFlushInterval", -1));
+        if (preferences.getBoolean("BridgeMetrics", false)) {
+            BridgeMetrics bridgeMetrics = new BridgeMetrics();
+            pluginManager.setBridgeMetrics(bridgeMetrics);
+            nativeToJsMessageQueue.setBridgeMetrics(bridgeMetrics);
+        }
+        int queueCapacity = preferences.getInteger("NativeToJsQueueCapacity", 0);
+        if (queueCapacity > 0) {
+            String policy = preferences.getString("NativeToJsQueueOverflowPolicy", "drop_oldest");
+            try {
+                nativeToJsMessageQueue.setCapacity(queueCapacity,
+                        NativeToJsMessageQueue.OverflowPolicy.valueOf(policy.toUpperCase(Locale.ENGLISH)));
+            } catch (IllegalArgumentException e) {
+                LOG.w(TAG, "Invalid NativeToJsQueueOverflowPolicy: " + policy);
+                nativeToJsMessageQueue.setCapacity(queueCapacity, NativeToJsMessageQueue.OverflowPolicy.DROP_OLDEST);
+            }
+        }
 
         if (preferences.getBoolean("DisallowOverscroll", false)) {
             engine.getView().setOverScrollMode(View.OVER_SCROLL_NEVER);
         }
         engine.init(this, cordova, engineClient, resourceApi, pluginManager, nativeToJsMessageQueue);
+        if (preferences.getBoolean("AdaptiveBridgeMode", false)) {
+            BridgeModeSelector bridgeModeSelector = new BridgeModeSelector(nativeToJsMessageQueue);
+            pluginManager.setBridgeModeSelector(bridgeModeSelector);
+            nativeToJsMessageQueue.setBridgeModeSelector(bridgeModeSelector);
+        }
         // This isn't enforced by the compiler, so assert here.
         assert engine.getView() instanceof CordovaWebViewEngine.EngineView;
 
         pluginManager.addService(CoreAndroid.PLUGIN_NAME, "org.apache.cordova.CoreAndroid");
+        pluginManager.addService(BridgeMetricsPlugin.PLUGIN_NAME, "org.apache.cordova.BridgeMetricsPlugin");
         pluginManager.init();
 
     }
@@ -131,6 +160,10 @@ public class CordovaWebViewImpl implements CordovaWebView {
 
         recreatePlugins = recreatePlugins || (loadedUrl == null);
 
+        // Binary payloads are fetched from a file:///android_asset/ URL, which is only
+        // reachable from pages served from there.
+        nativeToJsMessageQueue.setBinaryThreshold(url.startsWith("file:///android_asset/") ? binaryBridgeThreshold : 0);
+
         if (recreatePlugins) {
             // Don't re-initialize on first load.
             if (loadedUrl != null) {
@@ -428,6 +461,10 @@ public class CordovaWebViewImpl implements CordovaWebView {
             return;
         }
         hasPausedEver = true;
+        BridgeModeSelector bridgeModeSelector = nativeToJsMessageQueue.getBridgeModeSelector();
+        if (bridgeModeSelector != null) {
+            bridgeModeSelector.onPause();
+        }
         pluginManager.onPause(keepRunning);
         sendJavascriptEvent("pause");
 
@@ -446,6 +483,10 @@ public class CordovaWebViewImpl implements CordovaWebView {
         // Resume JavaScript timers. This affects all webviews within the app!
         engine.setPaused(false);
         this.pluginManager.onResume(keepRunning);
+        BridgeModeSelector bridgeModeSelector = nativeToJsMessageQueue.getBridgeModeSelector();
+        if (bridgeModeSelector != null) {
+            bridgeModeSelector.onResume();
+        }
 
         // In order to match the behavior of the other platforms, we only send onResume after an
         // onPause has occurred. The resume event might still be sent if the Activity was killed
@@ -525,6 +566,13 @@ public class CordovaWebViewImpl implements CordovaWebView {
             // Broadcast message that page has loaded
             pluginManager.postMessage("onPageFinished", url);
 
+            // Create deferred onload plugins once the page has had a chance to draw.
+            engine.getView().post(new Runnable() {
+                public void run() {
+                    pluginManager.startupDeferredPlugins();
+                }
+            });
+
             // Make app visible after 2 sec in case there was a JS error and Cordova JS never initialized correctly
             if (engine.getView().getVisibility() != View.VISIBLE) {
                 Thread t = new Thread(new Runnable() {
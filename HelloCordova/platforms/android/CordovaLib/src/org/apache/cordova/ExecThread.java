@@ -0,0 +1,56 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the thread on which PluginManager calls a plugin's execute() methods.
+ *
+ * The value is BRIDGE (the default: the thread that received the exec() call), UI, or the
+ * name of a bounded executor owned by PluginManager. Plugins that share an executor name
+ * share its threads.
+ *
+ *     @ExecThread(value = "io", actions = { "read", "write" })
+ *     public class MyPlugin extends CordovaPlugin { ... }
+ *
+ * The same can be set from config.xml, which takes precedence:
+ *
+ *     <feature name="MyPlugin">
+ *         <param name="android-package" value="com.example.MyPlugin" />
+ *         <param name="android-exec-thread" value="io" />
+ *         <param name="android-exec-thread" action="show" value="ui" />
+ *     </feature>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ExecThread {
+    String BRIDGE = "bridge";
+    String UI = "ui";
+
+    String value() default BRIDGE;
+
+    /**
+     * The actions this applies to. Empty means all actions.
+     */
+    String[] actions() default {};
+}
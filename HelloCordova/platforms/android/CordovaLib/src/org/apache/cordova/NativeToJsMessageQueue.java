@@ -19,7 +19,16 @@
 package org.apache.cordova;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.json.JSONObject;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
 
 /**
  * Holds the list of messages to be sent to the WebView.
@@ -41,16 +50,78 @@ public class NativeToJsMessageQueue {
     // to allow it to break up messages.
     private static int MAX_PAYLOAD_SIZE = 50 * 1024 * 10240;
 
+    // How long a producer waits for room under OverflowPolicy.BLOCK before the oldest
+    // message is dropped instead.
+    private static final long BLOCK_TIMEOUT_MS = 1000;
+
     /**
      * When true, the active listener is not fired upon enqueue. When set to false,
      * the active listener will be fired if the queue is non-empty.
      */
-    private boolean paused;
+    private volatile boolean paused;
 
     /**
      * The list of JavaScript statements to be sent to JavaScript.
      */
-    private final LinkedList<JsMessage> queue = new LinkedList<JsMessage>();
+    private final MessageRing queue = new MessageRing(16);
+
+    /**
+     * What to do with a new message when the queue already holds capacity messages.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Wait, for up to a second, for a flush to make room, then drop the oldest. Only
+         * background producers wait: the UI thread, the JS bridge thread (which flushes
+         * after exec() returns), and any thread enqueueing while the queue is paused drop
+         * the oldest straight away.
+         */
+        BLOCK,
+        /** Drop the oldest queued message. */
+        DROP_OLDEST,
+        /** Replace the newest queued keepCallback result with the same callbackId, else drop the oldest. */
+        COALESCE
+    }
+
+    /**
+     * The maximum number of queued messages, or 0 for no limit.
+     */
+    private int capacity;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+    private int droppedMessageCount;
+    private int coalescedMessageCount;
+
+    /**
+     * Serializes flushes, so that messages can be encoded without holding the queue lock.
+     */
+    private final Object flushLock = new Object();
+
+    /**
+     * ARRAYBUFFER and BINARYSTRING payloads of at least this many bytes are sent through
+     * BinaryBridge rather than Base64-encoded inline. 0 disables the binary channel.
+     */
+    private volatile int binaryThreshold;
+
+    /**
+     * Chunked plugin results whose encoded form is longer than this many chars are sent as
+     * several fragment messages, which JS reassembles. 0 disables fragmenting.
+     */
+    private volatile int fragmentSize = 256 * 1024;
+
+    /**
+     * How often LoadUrlBridgeMode and EvalBridgeMode flush: -1 to flush on every message,
+     * 0 for once per display frame, or a positive number of milliseconds.
+     */
+    private volatile int flushInterval = -1;
+
+    /**
+     * Receives queue depth, flush and delivery figures. Null when metrics are disabled.
+     */
+    private volatile BridgeMetrics bridgeMetrics;
+
+    /**
+     * Receives per-mode flush figures and mode changes. Null unless AdaptiveBridgeMode is set.
+     */
+    private volatile BridgeModeSelector bridgeModeSelector;
 
     /**
      * The array of listeners that can be used to send messages to JS.
@@ -68,14 +139,98 @@ public class NativeToJsMessageQueue {
         bridgeModes.add(bridgeMode);
     }
 
+    int getBridgeModeCount() {
+        return bridgeModes.size();
+    }
+
+    String getBridgeModeName(int index) {
+        return bridgeModes.get(index).getClass().getSimpleName();
+    }
+
     public boolean isBridgeEnabled() {
         return activeBridgeMode != null;
     }
 
-    public boolean isEmpty() {
+    public synchronized boolean isEmpty() {
         return queue.isEmpty();
     }
 
+    /**
+     * Bounds the number of queued messages. A capacity of 0 (the default) leaves the
+     * queue unbounded.
+     */
+    public void setCapacity(int capacity, OverflowPolicy policy) {
+        if (capacity < 0 || policy == null) {
+            throw new IllegalArgumentException();
+        }
+        synchronized (this) {
+            this.capacity = capacity;
+            this.overflowPolicy = policy;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Sets the payload size, in bytes, from which binary results are fetched by the WebView
+     * through BinaryBridge instead of being Base64-encoded into the message. The fetch URL is
+     * under file:///android_asset/, so only enable this for pages loaded from there.
+     * 0 disables the binary channel.
+     */
+    public void setBinaryThreshold(int bytes) {
+        binaryThreshold = Math.max(0, bytes);
+    }
+
+    /**
+     * Sets the largest fragment, in chars, that a chunked PluginResult is split into.
+     * 0 sends chunked results whole.
+     */
+    public void setFragmentSize(int chars) {
+        fragmentSize = Math.max(0, chars);
+    }
+
+    /**
+     * Sets how often the UI-thread bridge modes flush: -1 (the default) to flush as soon as
+     * each message is queued, 0 for at most once per display frame, or a positive interval
+     * in milliseconds. Each flush sends everything pending as one script.
+     */
+    public void setFlushInterval(int millis) {
+        flushInterval = Math.max(-1, millis);
+    }
+
+    /**
+     * Sets the registry that queue figures are recorded into, or null to stop recording.
+     */
+    public void setBridgeMetrics(BridgeMetrics metrics) {
+        bridgeMetrics = metrics;
+    }
+
+    /**
+     * Sets the selector that picks the bridge mode from measured round trips, or null to
+     * leave the mode to JS.
+     */
+    public void setBridgeModeSelector(BridgeModeSelector selector) {
+        bridgeModeSelector = selector;
+    }
+
+    public BridgeModeSelector getBridgeModeSelector() {
+        return bridgeModeSelector;
+    }
+
+    /**
+     * Returns how many messages have been discarded because the queue was full.
+     */
+    public synchronized int getDroppedMessageCount() {
+        return droppedMessageCount;
+    }
+
+    /**
+     * Returns how many keepCallback results were replaced by a newer result for the
+     * same callbackId before being sent.
+     */
+    public synchronized int getCoalescedMessageCount() {
+        return coalescedMessageCount;
+    }
+
     /**
      * Changes the bridge mode.
      */
@@ -88,6 +243,7 @@ public class NativeToJsMessageQueue {
                 LOG.d(LOG_TAG, "Set native->JS mode to " + (newMode == null ? "null" : newMode.getClass().getSimpleName()));
                 synchronized (this) {
                     activeBridgeMode = newMode;
+                    notifyAll();
                     if (newMode != null) {
                         newMode.reset();
                         if (!paused && !queue.isEmpty()) {
@@ -95,6 +251,10 @@ public class NativeToJsMessageQueue {
                         }
                     }
                 }
+                BridgeModeSelector selector = bridgeModeSelector;
+                if (selector != null) {
+                    selector.onBridgeModeChanged(value);
+                }
             }
         }
     }
@@ -105,18 +265,19 @@ public class NativeToJsMessageQueue {
     public void reset() {
         synchronized (this) {
             queue.clear();
+            notifyAll();
             setBridgeMode(-1);
         }
     }
 
     private int calculatePackedMessageLength(JsMessage message) {
-        int messageLen = message.calculateEncodedLength();
+        int messageLen = message.getEncodedLength();
         String messageLenStr = String.valueOf(messageLen);
         return messageLenStr.length() + messageLen + 1;
     }
 
     private void packMessage(JsMessage message, StringBuilder sb) {
-        int len = message.calculateEncodedLength();
+        int len = message.getEncodedLength();
         sb.append(len)
           .append(' ');
         message.encodeAsMessage(sb);
@@ -128,36 +289,46 @@ public class NativeToJsMessageQueue {
      * Returns null if the queue is empty.
      */
     public String popAndEncode(boolean fromOnlineEvent) {
-        synchronized (this) {
-            if (activeBridgeMode == null) {
-                return null;
-            }
-            activeBridgeMode.notifyOfFlush(this, fromOnlineEvent);
-            if (queue.isEmpty()) {
-                return null;
-            }
+        synchronized (flushLock) {
+            JsMessage[] messages;
             int totalPayloadLen = 0;
-            int numMessagesToSend = 0;
-            for (JsMessage message : queue) {
-                int messageSize = calculatePackedMessageLength(message);
-                if (numMessagesToSend > 0 && totalPayloadLen + messageSize > MAX_PAYLOAD_SIZE && MAX_PAYLOAD_SIZE > 0) {
-                    break;
+            boolean morePending;
+            BridgeMode flushingMode;
+            int depth;
+            synchronized (this) {
+                if (activeBridgeMode == null) {
+                    return null;
+                }
+                flushingMode = activeBridgeMode;
+                activeBridgeMode.notifyOfFlush(this, fromOnlineEvent);
+                if (queue.isEmpty()) {
+                    return null;
+                }
+                int numMessagesToSend = 0;
+                for (int i = 0; i < queue.size(); ++i) {
+                    int messageSize = calculatePackedMessageLength(queue.get(i));
+                    if (numMessagesToSend > 0 && totalPayloadLen + messageSize > MAX_PAYLOAD_SIZE && MAX_PAYLOAD_SIZE > 0) {
+                        break;
+                    }
+                    totalPayloadLen += messageSize;
+                    numMessagesToSend += 1;
                 }
-                totalPayloadLen += messageSize;
-                numMessagesToSend += 1;
+                messages = removeFirst(numMessagesToSend);
+                morePending = !queue.isEmpty();
+                depth = queue.size();
             }
 
-            StringBuilder sb = new StringBuilder(totalPayloadLen);
-            for (int i = 0; i < numMessagesToSend; ++i) {
-                JsMessage message = queue.removeFirst();
+            StringBuilder sb = new StringBuilder(totalPayloadLen + 1);
+            for (JsMessage message : messages) {
                 packMessage(message, sb);
             }
 
-            if (!queue.isEmpty()) {
+            if (morePending) {
                 // Attach a char to indicate that there are more messages pending.
                 sb.append('*');
             }
             String ret = sb.toString();
+            recordFlush(flushingMode, messages, ret.length(), depth);
             return ret;
         }
     }
@@ -166,27 +337,37 @@ public class NativeToJsMessageQueue {
      * Same as popAndEncode(), except encodes in a form that can be executed as JS.
      */
     public String popAndEncodeAsJs() {
-        synchronized (this) {
-            int length = queue.size();
-            if (length == 0) {
-                return null;
-            }
+        synchronized (flushLock) {
+            JsMessage[] messages;
             int totalPayloadLen = 0;
-            int numMessagesToSend = 0;
-            for (JsMessage message : queue) {
-                int messageSize = message.calculateEncodedLength() + 50; // overestimate.
-                if (numMessagesToSend > 0 && totalPayloadLen + messageSize > MAX_PAYLOAD_SIZE && MAX_PAYLOAD_SIZE > 0) {
-                    break;
+            boolean willSendAllMessages;
+            BridgeMode flushingMode;
+            int depth;
+            synchronized (this) {
+                flushingMode = activeBridgeMode;
+                int length = queue.size();
+                if (length == 0) {
+                    return null;
                 }
-                totalPayloadLen += messageSize;
-                numMessagesToSend += 1;
+                int numMessagesToSend = 0;
+                for (int i = 0; i < length; ++i) {
+                    int messageSize = queue.get(i).getEncodedLength() + 50; // overestimate.
+                    if (numMessagesToSend > 0 && totalPayloadLen + messageSize > MAX_PAYLOAD_SIZE && MAX_PAYLOAD_SIZE > 0) {
+                        break;
+                    }
+                    totalPayloadLen += messageSize;
+                    numMessagesToSend += 1;
+                }
+                willSendAllMessages = numMessagesToSend == length;
+                messages = removeFirst(numMessagesToSend);
+                depth = queue.size();
             }
-            boolean willSendAllMessages = numMessagesToSend == queue.size();
+            int numMessagesToSend = messages.length;
             StringBuilder sb = new StringBuilder(totalPayloadLen + (willSendAllMessages ? 0 : 100));
             // Wrap each statement in a try/finally so that if one throws it does
             // not affect the next.
             for (int i = 0; i < numMessagesToSend; ++i) {
-                JsMessage message = queue.removeFirst();
+                JsMessage message = messages[i];
                 if (willSendAllMessages && (i + 1 == numMessagesToSend)) {
                     message.encodeAsJsMessage(sb);
                 } else {
@@ -202,10 +383,44 @@ public class NativeToJsMessageQueue {
                 sb.append('}');
             }
             String ret = sb.toString();
+            recordFlush(flushingMode, messages, ret.length(), depth);
             return ret;
         }
     }
 
+    private void recordFlush(BridgeMode mode, JsMessage[] messages, int encodedChars, int depth) {
+        BridgeModeSelector selector = bridgeModeSelector;
+        if (selector != null) {
+            selector.recordFlush(bridgeModes.indexOf(mode), messages.length, encodedChars);
+        }
+        BridgeMetrics metrics = bridgeMetrics;
+        if (metrics == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (JsMessage message : messages) {
+            if (message.enqueueTime != 0) {
+                metrics.recordDelivery(now - message.enqueueTime);
+            }
+        }
+        metrics.recordFlush(mode == null ? "none" : mode.getClass().getSimpleName(), messages.length, encodedChars, depth);
+    }
+
+    /**
+     * Removes the first count messages. Must be called while holding the queue lock.
+     */
+    private JsMessage[] removeFirst(int count) {
+        JsMessage[] messages = new JsMessage[count];
+        for (int i = 0; i < count; ++i) {
+            messages[i] = queue.removeFirst();
+        }
+        if (capacity > 0) {
+            // Wake producers blocked on a full queue.
+            notifyAll();
+        }
+        return messages;
+    }
+
     /**
      * Add a JavaScript statement to the list.
      */
@@ -228,29 +443,229 @@ public class NativeToJsMessageQueue {
         if (noResult && keepCallback) {
             return;
         }
-        JsMessage message = new JsMessage(result, callbackId);
+        JsMessage message = new JsMessage(result, callbackId, binaryThreshold);
         if (FORCE_ENCODE_USING_EVAL) {
             StringBuilder sb = new StringBuilder(message.calculateEncodedLength() + 50);
             message.encodeAsJsMessage(sb);
             message = new JsMessage(sb.toString());
         }
 
+        if (keepCallback && result.getCoalesce() && coalesceMessage(message)) {
+            return;
+        }
+        int maxFragment = fragmentSize;
+        if (result.getChunked() && maxFragment > 0 && message.getEncodedLength() > maxFragment) {
+            enqueueFragments(message, maxFragment);
+            return;
+        }
         enqueueMessage(message);
     }
 
+    /**
+     * Queues message as consecutive fragments of at most maxFragment chars, so that no single
+     * bridge transfer has to carry the whole result. Fragments are ranges of the payload
+     * String that the PluginResult already holds, so nothing is copied here; other messages
+     * are encoded once into a buffer that all of their fragments share.
+     */
+    private void enqueueFragments(JsMessage message, int maxFragment) {
+        StringBuilder prefix = new StringBuilder();
+        CharSequence body = message.encodeAsMessagePrefix(prefix);
+        if (body == null) {
+            StringBuilder sb = new StringBuilder(message.getEncodedLength());
+            message.encodeAsMessage(sb);
+            body = sb;
+        }
+        String head = prefix.toString();
+        int length = head.length() + body.length();
+        ArrayList<Integer> ends = new ArrayList<Integer>();
+        for (int start = 0; start < length; ) {
+            int end = Math.min(length, start + maxFragment);
+            // Don't split a surrogate pair across fragments.
+            if (end < length && end - start > 1 && Character.isHighSurrogate(charAt(head, body, end - 1))
+                    && Character.isLowSurrogate(charAt(head, body, end))) {
+                end--;
+            }
+            ends.add(end);
+            start = end;
+        }
+        int count = ends.size();
+        int limit;
+        synchronized (this) {
+            limit = capacity;
+        }
+        if (limit > 0 && count > limit) {
+            // The fragments could not all be queued at once: overflow would evict the leading
+            // ones, and JS would never complete the message. Send it whole instead.
+            LOG.w(LOG_TAG, "Chunked result needs " + count + " fragments but the queue holds " + limit + "; sending it whole");
+            enqueueMessage(message);
+            return;
+        }
+        // The queue keeps the fragments rather than message, so the encoding is released
+        // as soon as the last fragment has been flushed.
+        JsMessage[] fragments = new JsMessage[count];
+        int start = 0;
+        for (int i = 0; i < count; ++i) {
+            int end = ends.get(i);
+            fragments[i] = new JsMessage(message.jsPayloadOrCallbackId, new EncodedSlice(head, body, start, end), i, count);
+            fragments[i].getEncodedLength();
+            start = end;
+        }
+        BridgeMetrics metrics = bridgeMetrics;
+        if (metrics != null) {
+            long now = System.nanoTime();
+            for (JsMessage fragment : fragments) {
+                fragment.enqueueTime = now;
+            }
+        }
+        synchronized (this) {
+            if (activeBridgeMode == null) {
+                LOG.d(LOG_TAG, "Dropping Native->JS message due to disabled bridge");
+                return;
+            }
+            for (JsMessage fragment : fragments) {
+                if (!addMessage(fragment)) {
+                    return;
+                }
+                if (metrics != null) {
+                    metrics.recordEnqueue(queue.size());
+                }
+            }
+            if (!paused) {
+                activeBridgeMode.onNativeToJsMessageAvailable(this);
+            }
+        }
+    }
+
+    private static char charAt(String head, CharSequence body, int index) {
+        int headLength = head.length();
+        return index < headLength ? head.charAt(index) : body.charAt(index - headLength);
+    }
+
     private void enqueueMessage(JsMessage message) {
+        // Measure once, outside of the lock. Flushes reuse the cached length.
+        message.getEncodedLength();
+        BridgeMetrics metrics = bridgeMetrics;
+        if (metrics != null) {
+            message.enqueueTime = System.nanoTime();
+        }
         synchronized (this) {
             if (activeBridgeMode == null) {
                 LOG.d(LOG_TAG, "Dropping Native->JS message due to disabled bridge");
                 return;
             }
-            queue.add(message);
+            if (!addMessage(message)) {
+                return;
+            }
+            if (metrics != null) {
+                metrics.recordEnqueue(queue.size());
+            }
             if (!paused) {
                 activeBridgeMode.onNativeToJsMessageAvailable(this);
             }
         }
     }
 
+    /**
+     * Appends message, applying the overflow policy if the queue is full. Must be called
+     * while holding the queue lock. Returns false if the message was dropped.
+     */
+    private boolean addMessage(JsMessage message) {
+        if (capacity > 0 && queue.size() >= capacity) {
+            return makeRoom(message);
+        }
+        queue.add(message);
+        return true;
+    }
+
+    /**
+     * Applies the overflow policy to a full queue. Must be called while holding the queue lock.
+     * Returns false if the message was dropped; otherwise it has been queued.
+     */
+    private boolean makeRoom(JsMessage message) {
+        if (overflowPolicy == OverflowPolicy.COALESCE && replaceQueuedProgress(message)) {
+            droppedMessageCount++;
+            return true;
+        }
+        if (overflowPolicy == OverflowPolicy.BLOCK && canWaitForFlush()) {
+            // Messages queued before this one in the same batch may not have scheduled a
+            // flush yet.
+            if (activeBridgeMode != null) {
+                activeBridgeMode.onNativeToJsMessageAvailable(this);
+            }
+            long deadline = System.currentTimeMillis() + BLOCK_TIMEOUT_MS;
+            while (activeBridgeMode != null && !paused && capacity > 0 && queue.size() >= capacity) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    break;
+                }
+                try {
+                    wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            if (activeBridgeMode == null) {
+                LOG.d(LOG_TAG, "Dropping Native->JS message due to disabled bridge");
+                return false;
+            }
+        }
+        while (capacity > 0 && queue.size() >= capacity) {
+            queue.removeFirst();
+            droppedMessageCount++;
+            LOG.w(LOG_TAG, "Native->JS queue full; dropped oldest message");
+        }
+        queue.add(message);
+        return true;
+    }
+
+    /**
+     * Whether the current thread may wait for a flush. The UI thread and the JS bridge thread
+     * do the flushing themselves, and nothing is flushed while the queue is paused.
+     */
+    private boolean canWaitForFlush() {
+        return !paused && Looper.myLooper() != Looper.getMainLooper()
+                && Thread.currentThread() != CordovaResourceApi.jsThread;
+    }
+
+    /**
+     * Replaces the newest queued message for the same callbackId with message, if that
+     * queued message is a keepCallback result. Taking the newest one keeps per-callback
+     * ordering intact: if the newest is a final result or a fragment of a chunked result,
+     * nothing is replaced. Must be called while holding the queue lock.
+     */
+    private boolean replaceQueuedProgress(JsMessage message) {
+        if (message.pluginResult == null) {
+            return false;
+        }
+        for (int i = queue.size() - 1; i >= 0; --i) {
+            JsMessage queued = queue.get(i);
+            if (message.jsPayloadOrCallbackId.equals(queued.jsPayloadOrCallbackId)) {
+                if (queued.pluginResult == null || !queued.pluginResult.getKeepCallback()) {
+                    return false;
+                }
+                queue.set(i, message);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lets a keepCallback result take the place of a pending one for the same callbackId.
+     * Returns false if there was nothing to replace, in which case it should be enqueued.
+     */
+    private boolean coalesceMessage(JsMessage message) {
+        message.getEncodedLength();
+        synchronized (this) {
+            if (activeBridgeMode == null || !replaceQueuedProgress(message)) {
+                return false;
+            }
+            coalescedMessageCount++;
+            return true;
+        }
+    }
+
     public void setPaused(boolean value) {
         if (paused && value) {
             // This should never happen. If a use-case for it comes up, we should
@@ -258,12 +673,71 @@ public class NativeToJsMessageQueue {
             LOG.e(LOG_TAG, "nested call to setPaused detected.", new Throwable());
         }
         paused = value;
-        if (!value) {
-            synchronized (this) {
-                if (!queue.isEmpty() && activeBridgeMode != null) {
-                    activeBridgeMode.onNativeToJsMessageAvailable(this);
+        synchronized (this) {
+            // Producers waiting for room stop waiting once the queue is paused.
+            notifyAll();
+            if (!value && !queue.isEmpty() && activeBridgeMode != null) {
+                activeBridgeMode.onNativeToJsMessageAvailable(this);
+            }
+        }
+    }
+
+    /**
+     * An array-backed FIFO of messages. Grows when full; capacity limits are applied by
+     * the enclosing queue. Not thread-safe.
+     */
+    private static class MessageRing {
+        private JsMessage[] items;
+        private int head;
+        private int size;
+
+        MessageRing(int initialCapacity) {
+            items = new JsMessage[initialCapacity];
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        JsMessage get(int index) {
+            return items[(head + index) % items.length];
+        }
+
+        void set(int index, JsMessage message) {
+            items[(head + index) % items.length] = message;
+        }
+
+        void add(JsMessage message) {
+            if (size == items.length) {
+                JsMessage[] grown = new JsMessage[items.length * 2];
+                for (int i = 0; i < size; ++i) {
+                    grown[i] = get(i);
                 }
+                items = grown;
+                head = 0;
+            }
+            items[(head + size) % items.length] = message;
+            size++;
+        }
+
+        JsMessage removeFirst() {
+            JsMessage message = items[head];
+            items[head] = null;
+            head = (head + 1) % items.length;
+            size--;
+            return message;
+        }
+
+        void clear() {
+            for (int i = 0; i < size; ++i) {
+                set(i, null);
             }
+            head = 0;
+            size = 0;
         }
     }
 
@@ -279,27 +753,101 @@ public class NativeToJsMessageQueue {
         }
     }
 
+    /**
+     * Runs a UI-thread flush at most once per display frame (via Choreographer) or per
+     * interval, however many messages are queued in between. No frames are drawn while the
+     * screen is off, so frame-aligned flushes are backed by a timer.
+     */
+    private static class FlushScheduler {
+        // Flushes anyway if no frame arrives for several frames, e.g. with the screen off.
+        private static final int FRAME_BACKSTOP_MS = 100;
+        // Stands in for frame callbacks where Choreographer is unavailable.
+        private static final int FRAME_INTERVAL_MS = 16;
+
+        private final CordovaInterface cordova;
+        private final Runnable flush;
+        private final Handler handler = new Handler(Looper.getMainLooper());
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final Runnable scheduledFlush = new Runnable() {
+            public void run() {
+                // Clear first, so that messages queued by this flush schedule the next one.
+                // Whichever of the frame callback and the backstop runs second finds it clear.
+                if (scheduled.compareAndSet(true, false)) {
+                    flush.run();
+                }
+            }
+        };
+        private Object frameCallback;
+
+        FlushScheduler(CordovaInterface cordova, Runnable flush) {
+            this.cordova = cordova;
+            this.flush = flush;
+        }
+
+        void schedule(int interval) {
+            if (interval < 0) {
+                cordova.getActivity().runOnUiThread(flush);
+                return;
+            }
+            if (!scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            if (interval > 0 || Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+                handler.postDelayed(scheduledFlush, interval > 0 ? interval : FRAME_INTERVAL_MS);
+                return;
+            }
+            handler.postDelayed(scheduledFlush, FRAME_BACKSTOP_MS);
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                postFrameCallback();
+            } else {
+                handler.post(new Runnable() {
+                    public void run() {
+                        postFrameCallback();
+                    }
+                });
+            }
+        }
+
+        @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+        private void postFrameCallback() {
+            if (frameCallback == null) {
+                frameCallback = new Choreographer.FrameCallback() {
+                    @Override
+                    public void doFrame(long frameTimeNanos) {
+                        handler.removeCallbacks(scheduledFlush);
+                        scheduledFlush.run();
+                    }
+                };
+            }
+            Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) frameCallback);
+        }
+    }
+
     /** Uses webView.loadUrl("javascript:") to execute messages. */
     public static class LoadUrlBridgeMode extends BridgeMode {
         private final CordovaWebViewEngine engine;
         private final CordovaInterface cordova;
+        private final FlushScheduler flushScheduler;
+        private volatile NativeToJsMessageQueue queue;
 
         public LoadUrlBridgeMode(CordovaWebViewEngine engine, CordovaInterface cordova) {
             this.engine = engine;
             this.cordova = cordova;
-        }
-
-        @Override
-        public void onNativeToJsMessageAvailable(final NativeToJsMessageQueue queue) {
-            cordova.getActivity().runOnUiThread(new Runnable() {
+            flushScheduler = new FlushScheduler(cordova, new Runnable() {
                 public void run() {
                     String js = queue.popAndEncodeAsJs();
                     if (js != null) {
-                        engine.loadUrl("javascript:" + js, false);
+                        LoadUrlBridgeMode.this.engine.loadUrl("javascript:" + js, false);
                     }
                 }
             });
         }
+
+        @Override
+        public void onNativeToJsMessageAvailable(final NativeToJsMessageQueue queue) {
+            this.queue = queue;
+            flushScheduler.schedule(queue.flushInterval);
+        }
     }
 
     /** Uses online/offline events to tell the JS when to poll for messages. */
@@ -353,46 +901,147 @@ public class NativeToJsMessageQueue {
     public static class EvalBridgeMode extends BridgeMode {
         private final CordovaWebViewEngine engine;
         private final CordovaInterface cordova;
+        private final FlushScheduler flushScheduler;
+        private volatile NativeToJsMessageQueue queue;
 
         public EvalBridgeMode(CordovaWebViewEngine engine, CordovaInterface cordova) {
             this.engine = engine;
             this.cordova = cordova;
-        }
-
-        @Override
-        public void onNativeToJsMessageAvailable(final NativeToJsMessageQueue queue) {
-            cordova.getActivity().runOnUiThread(new Runnable() {
+            flushScheduler = new FlushScheduler(cordova, new Runnable() {
                 public void run() {
                     String js = queue.popAndEncodeAsJs();
                     if (js != null) {
-                        engine.evaluateJavascript(js, null);
+                        EvalBridgeMode.this.engine.evaluateJavascript(js, null);
                     }
                 }
             });
         }
+
+        @Override
+        public void onNativeToJsMessageAvailable(final NativeToJsMessageQueue queue) {
+            this.queue = queue;
+            flushScheduler.schedule(queue.flushInterval);
+        }
     }
 
 
 
+    /**
+     * A range of a message's encoding, where the encoding is a short head followed by a body
+     * shared by all fragments of the message. Neither is modified once fragments exist.
+     */
+    private static final class EncodedSlice {
+        final String head;
+        final CharSequence body;
+        final int start;
+        final int end;
+
+        EncodedSlice(String head, CharSequence body, int start, int end) {
+            this.head = head;
+            this.body = body;
+            this.start = start;
+            this.end = end;
+        }
+
+        int length() {
+            return end - start;
+        }
+
+        void appendTo(StringBuilder sb) {
+            int headLength = head.length();
+            if (start < headLength) {
+                sb.append(head, start, Math.min(end, headLength));
+            }
+            if (end > headLength) {
+                sb.append(body, Math.max(start, headLength) - headLength, end - headLength);
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(length());
+            appendTo(sb);
+            return sb.toString();
+        }
+    }
+
     private static class JsMessage {
         final String jsPayloadOrCallbackId;
         final PluginResult pluginResult;
+        /** For fragments of a chunked result: the fragment text, its index and the total. */
+        final EncodedSlice fragment;
+        final int fragmentIndex;
+        final int fragmentCount;
+        private int encodedLength = -1;
+        /** System.nanoTime() when queued, or 0 if metrics were disabled. */
+        long enqueueTime;
         JsMessage(String js) {
             if (js == null) {
                 throw new NullPointerException();
             }
             jsPayloadOrCallbackId = js;
             pluginResult = null;
+            fragment = null;
+            fragmentIndex = 0;
+            fragmentCount = 0;
+        }
+        JsMessage(String callbackId, EncodedSlice fragment, int fragmentIndex, int fragmentCount) {
+            if (callbackId == null || fragment == null) {
+                throw new NullPointerException();
+            }
+            jsPayloadOrCallbackId = callbackId;
+            pluginResult = null;
+            this.fragment = fragment;
+            this.fragmentIndex = fragmentIndex;
+            this.fragmentCount = fragmentCount;
         }
+        /**
+         * Binary payloads of this message that are sent by URL, keyed by result part.
+         * Null when every part is encoded inline.
+         */
+        private IdentityHashMap<PluginResult, String> binaryUrls;
         JsMessage(PluginResult pluginResult, String callbackId) {
             if (callbackId == null || pluginResult == null) {
                 throw new NullPointerException();
             }
             jsPayloadOrCallbackId = callbackId;
             this.pluginResult = pluginResult;
+            fragment = null;
+            fragmentIndex = 0;
+            fragmentCount = 0;
+        }
+        JsMessage(PluginResult pluginResult, String callbackId, int binaryThreshold) {
+            this(pluginResult, callbackId);
+            if (binaryThreshold > 0) {
+                registerBinaryPayloads(pluginResult, binaryThreshold);
+            }
         }
 
-        static int calculateEncodedLengthHelper(PluginResult pluginResult) {
+        private void registerBinaryPayloads(PluginResult pluginResult, int binaryThreshold) {
+            switch (pluginResult.getMessageType()) {
+                case PluginResult.MESSAGE_TYPE_BINARYSTRING:
+                case PluginResult.MESSAGE_TYPE_ARRAYBUFFER:
+                    byte[] data = pluginResult.getBinaryMessage();
+                    if (data != null && data.length >= binaryThreshold) {
+                        if (binaryUrls == null) {
+                            binaryUrls = new IdentityHashMap<PluginResult, String>();
+                        }
+                        binaryUrls.put(pluginResult, BinaryBridge.register(data));
+                    }
+                    break;
+                case PluginResult.MESSAGE_TYPE_MULTIPART:
+                    for (int i = 0; i < pluginResult.getMultipartMessagesSize(); i++) {
+                        registerBinaryPayloads(pluginResult.getMultipartMessage(i), binaryThreshold);
+                    }
+                    break;
+            }
+        }
+
+        private String binaryUrl(PluginResult pluginResult) {
+            return binaryUrls == null ? null : binaryUrls.get(pluginResult);
+        }
+
+        int calculateEncodedLengthHelper(PluginResult pluginResult) {
             switch (pluginResult.getMessageType()) {
                 case PluginResult.MESSAGE_TYPE_BOOLEAN: // f or t
                 case PluginResult.MESSAGE_TYPE_NULL: // N
@@ -402,9 +1051,10 @@ public class NativeToJsMessageQueue {
                 case PluginResult.MESSAGE_TYPE_STRING: // s
                     return 1 + pluginResult.getStrMessage().length();
                 case PluginResult.MESSAGE_TYPE_BINARYSTRING:
-                    return 1 + pluginResult.getMessage().length();
-                case PluginResult.MESSAGE_TYPE_ARRAYBUFFER:
-                    return 1 + pluginResult.getMessage().length();
+                case PluginResult.MESSAGE_TYPE_ARRAYBUFFER: {
+                    String url = binaryUrl(pluginResult);
+                    return 1 + (url != null ? url : pluginResult.getMessage()).length();
+                }
                 case PluginResult.MESSAGE_TYPE_MULTIPART:
                     int ret = 1;
                     for (int i = 0; i < pluginResult.getMultipartMessagesSize(); i++) {
@@ -419,7 +1069,18 @@ public class NativeToJsMessageQueue {
             }
         }
 
+        int getEncodedLength() {
+            if (encodedLength < 0) {
+                encodedLength = calculateEncodedLength();
+            }
+            return encodedLength;
+        }
+
         int calculateEncodedLength() {
+            if (fragment != null) {
+                return 1 + String.valueOf(fragmentIndex).length() + 1 + String.valueOf(fragmentCount).length()
+                        + 1 + jsPayloadOrCallbackId.length() + 1 + fragment.length();
+            }
             if (pluginResult == null) {
                 return jsPayloadOrCallbackId.length() + 1;
             }
@@ -428,7 +1089,7 @@ public class NativeToJsMessageQueue {
             return ret + calculateEncodedLengthHelper(pluginResult);
             }
 
-        static void encodeAsMessageHelper(StringBuilder sb, PluginResult pluginResult) {
+        void encodeAsMessageHelper(StringBuilder sb, PluginResult pluginResult) {
             switch (pluginResult.getMessageType()) {
                 case PluginResult.MESSAGE_TYPE_BOOLEAN:
                     sb.append(pluginResult.getMessage().charAt(0)); // t or f.
@@ -444,14 +1105,18 @@ public class NativeToJsMessageQueue {
                     sb.append('s');
                     sb.append(pluginResult.getStrMessage());
                     break;
-                case PluginResult.MESSAGE_TYPE_BINARYSTRING: // S
-                    sb.append('S');
-                    sb.append(pluginResult.getMessage());
+                case PluginResult.MESSAGE_TYPE_BINARYSTRING: { // S, or b for a BinaryBridge URL
+                    String url = binaryUrl(pluginResult);
+                    sb.append(url != null ? 'b' : 'S');
+                    sb.append(url != null ? url : pluginResult.getMessage());
                     break;
-                case PluginResult.MESSAGE_TYPE_ARRAYBUFFER: // A
-                    sb.append('A');
-                    sb.append(pluginResult.getMessage());
+                }
+                case PluginResult.MESSAGE_TYPE_ARRAYBUFFER: { // A, or B for a BinaryBridge URL
+                    String url = binaryUrl(pluginResult);
+                    sb.append(url != null ? 'B' : 'A');
+                    sb.append(url != null ? url : pluginResult.getMessage());
                     break;
+                }
                 case PluginResult.MESSAGE_TYPE_MULTIPART:
                     sb.append('M');
                     for (int i = 0; i < pluginResult.getMultipartMessagesSize(); i++) {
@@ -468,11 +1133,27 @@ public class NativeToJsMessageQueue {
         }
 
         void encodeAsMessage(StringBuilder sb) {
+            if (fragment != null) {
+                sb.append('P')
+                  .append(fragmentIndex)
+                  .append(' ')
+                  .append(fragmentCount)
+                  .append(' ')
+                  .append(jsPayloadOrCallbackId)
+                  .append(' ');
+                fragment.appendTo(sb);
+                return;
+            }
             if (pluginResult == null) {
                 sb.append('J')
                   .append(jsPayloadOrCallbackId);
                 return;
             }
+            encodeResultHeader(sb);
+            encodeAsMessageHelper(sb, pluginResult);
+        }
+
+        private void encodeResultHeader(StringBuilder sb) {
             int status = pluginResult.getStatus();
             boolean noResult = status == PluginResult.Status.NO_RESULT.ordinal();
             boolean resultOk = status == PluginResult.Status.OK.ordinal();
@@ -484,18 +1165,59 @@ public class NativeToJsMessageQueue {
               .append(' ')
               .append(jsPayloadOrCallbackId)
               .append(' ');
+        }
 
-            encodeAsMessageHelper(sb, pluginResult);
+        /**
+         * For results whose encoding ends with a String that the PluginResult already holds,
+         * appends the rest of the encoding to sb and returns that String, so that the whole
+         * encoding is sb followed by it. Returns null, appending nothing, for other messages.
+         */
+        String encodeAsMessagePrefix(StringBuilder sb) {
+            if (pluginResult == null || fragment != null) {
+                return null;
+            }
+            String payload;
+            switch (pluginResult.getMessageType()) {
+                case PluginResult.MESSAGE_TYPE_STRING:
+                    encodeResultHeader(sb);
+                    sb.append('s');
+                    payload = pluginResult.getStrMessage();
+                    break;
+                case PluginResult.MESSAGE_TYPE_BINARYSTRING:
+                case PluginResult.MESSAGE_TYPE_ARRAYBUFFER:
+                    if (binaryUrl(pluginResult) != null) {
+                        return null;
+                    }
+                    encodeResultHeader(sb);
+                    sb.append(pluginResult.getMessageType() == PluginResult.MESSAGE_TYPE_ARRAYBUFFER ? 'A' : 'S');
+                    payload = pluginResult.getMessage();
+                    break;
+                case PluginResult.MESSAGE_TYPE_JSON:
+                    encodeResultHeader(sb);
+                    payload = pluginResult.getMessage();
+                    break;
+                default:
+                    return null;
+            }
+            return payload;
         }
 
-        void buildJsMessage(StringBuilder sb) {
+        void buildJsMessage(StringBuilder sb, PluginResult pluginResult) {
+            String url = binaryUrl(pluginResult);
+            if (url != null) {
+                boolean asArrayBuffer = pluginResult.getMessageType() == PluginResult.MESSAGE_TYPE_ARRAYBUFFER;
+                sb.append("cordova.require('cordova/exec').readBinaryPayload('")
+                        .append(url)
+                        .append("',")
+                        .append(asArrayBuffer)
+                        .append(")");
+                return;
+            }
             switch (pluginResult.getMessageType()) {
                 case PluginResult.MESSAGE_TYPE_MULTIPART:
                     int size = pluginResult.getMultipartMessagesSize();
                     for (int i=0; i<size; i++) {
-                        PluginResult subresult = pluginResult.getMultipartMessage(i);
-                        JsMessage submessage = new JsMessage(subresult, jsPayloadOrCallbackId);
-                        submessage.buildJsMessage(sb);
+                        buildJsMessage(sb, pluginResult.getMultipartMessage(i));
                         if (i < (size-1)) {
                             sb.append(",");
                         }
@@ -517,7 +1239,17 @@ public class NativeToJsMessageQueue {
         }
 
         void encodeAsJsMessage(StringBuilder sb) {
-            if (pluginResult == null) {
+            if (fragment != null) {
+                sb.append("cordova.require('cordova/exec').processFragment(")
+                  .append(fragmentIndex)
+                  .append(',')
+                  .append(fragmentCount)
+                  .append(',')
+                  .append(JSONObject.quote(jsPayloadOrCallbackId))
+                  .append(',')
+                  .append(JSONObject.quote(fragment.toString()))
+                  .append(");");
+            } else if (pluginResult == null) {
                 sb.append(jsPayloadOrCallbackId);
             } else {
                 int status = pluginResult.getStatus();
@@ -529,7 +1261,7 @@ public class NativeToJsMessageQueue {
                         .append(",")
                         .append(status)
                         .append(",[");
-                buildJsMessage(sb);
+                buildJsMessage(sb, pluginResult);
                 sb.append("],")
                         .append(pluginResult.getKeepCallback())
                         .append(");");
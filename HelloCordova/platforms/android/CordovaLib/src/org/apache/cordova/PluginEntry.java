@@ -18,6 +18,9 @@
  */
 package org.apache.cordova;
 
+import java.util.Collections;
+import java.util.Map;
+
 import org.apache.cordova.CordovaPlugin;
 
 /**
@@ -45,6 +48,23 @@ public final class PluginEntry {
      */
     public final boolean onload;
 
+    /**
+     * For onload plugins: create the plugin object after the first page has finished
+     * loading, rather than before it starts.
+     */
+    public final boolean deferLoad;
+
+    /**
+     * The thread on which to run execute() for actions without their own entry in
+     * actionExecThreads, or null to defer to the plugin's ExecThread annotation.
+     */
+    public final String execThread;
+
+    /**
+     * Per-action overrides of execThread.
+     */
+    public final Map<String, String> actionExecThreads;
+
     /**
      * Constructs with a CordovaPlugin already instantiated.
      */
@@ -61,10 +81,29 @@ public final class PluginEntry {
         this(service, pluginClass, onload, null);
     }
 
+    /**
+     * @param service               The name of the service
+     * @param pluginClass           The plugin class name
+     * @param onload                Create plugin object when HTML page is loaded
+     * @param deferLoad             With onload, wait until the first page has finished loading
+     * @param execThread            The thread for execute() calls; see ExecThread
+     * @param actionExecThreads     Per-action threads, overriding execThread
+     */
+    public PluginEntry(String service, String pluginClass, boolean onload, boolean deferLoad, String execThread, Map<String, String> actionExecThreads) {
+        this(service, pluginClass, onload, deferLoad, null, execThread, actionExecThreads);
+    }
+
     private PluginEntry(String service, String pluginClass, boolean onload, CordovaPlugin plugin) {
+        this(service, pluginClass, onload, false, plugin, null, null);
+    }
+
+    private PluginEntry(String service, String pluginClass, boolean onload, boolean deferLoad, CordovaPlugin plugin, String execThread, Map<String, String> actionExecThreads) {
         this.service = service;
         this.pluginClass = pluginClass;
         this.onload = onload;
+        this.deferLoad = deferLoad;
         this.plugin = plugin;
+        this.execThread = execThread;
+        this.actionExecThreads = actionExecThreads == null ? Collections.<String, String>emptyMap() : actionExecThreads;
     }
 }
@@ -18,8 +18,20 @@
  */
 package org.apache.cordova;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.json.JSONException;
 
@@ -38,6 +50,27 @@ import android.os.Debug;
 public class PluginManager {
     private static String TAG = "PluginManager";
     private static final int SLOW_EXEC_WARNING_THRESHOLD = Debug.isDebuggerConnected() ? 60 : 16;
+    private static final int DEFAULT_EXECUTOR_THREADS = 2;
+    private static final int DEFAULT_EXECUTOR_QUEUE_SIZE = 64;
+    private static final long EXECUTOR_KEEP_ALIVE_SECONDS = 30;
+    private static final int CLASS_PREFETCH_THREADS = 3;
+
+    // Hooks that are dispatched only to plugins overriding them. Indexes into hookChains.
+    private static final int HOOK_ON_MESSAGE = 0;
+    private static final int HOOK_SHOULD_ALLOW_REQUEST = 1;
+    private static final int HOOK_SHOULD_ALLOW_NAVIGATION = 2;
+    private static final int HOOK_SHOULD_ALLOW_BRIDGE_ACCESS = 3;
+    private static final int HOOK_SHOULD_OPEN_EXTERNAL_URL = 4;
+    private static final int HOOK_ON_OVERRIDE_URL_LOADING = 5;
+    private static final int HOOK_REMAP_URI = 6;
+    private static final String[] HOOK_METHODS = { "onMessage", "shouldAllowRequest", "shouldAllowNavigation",
+            "shouldAllowBridgeAccess", "shouldOpenExternalUrl", "onOverrideUrlLoading", "remapUri" };
+    private static final Class<?>[][] HOOK_PARAMETERS = { { String.class, Object.class }, { String.class },
+            { String.class }, { String.class }, { String.class }, { String.class }, { Uri.class } };
+    private static final CordovaPlugin[] NO_PLUGINS = new CordovaPlugin[0];
+
+    // Bitmask of the hooks each plugin class overrides.
+    private static final HashMap<Class<?>, Integer> hookMasks = new HashMap<Class<?>, Integer>();
 
     // List of service entries
     private final LinkedHashMap<String, CordovaPlugin> pluginMap = new LinkedHashMap<String, CordovaPlugin>();
@@ -49,6 +82,25 @@ public class PluginManager {
 
     private CordovaPlugin permissionRequester;
 
+    // Named executors for plugins routed off the bridge thread, created on first use.
+    private final HashMap<String, ThreadPoolExecutor> executors = new HashMap<String, ThreadPoolExecutor>();
+    // ExecThread annotation per plugin class. Holds null for classes without one.
+    private final HashMap<Class<?>, ExecThread> execThreadAnnotations = new HashMap<Class<?>, ExecThread>();
+
+    private volatile BridgeMetrics bridgeMetrics;
+    private volatile BridgeModeSelector bridgeModeSelector;
+
+    // Plugin classes loaded ahead of instantiation by prefetchPluginClasses().
+    private final ConcurrentHashMap<String, Class<?>> pluginClasses = new ConcurrentHashMap<String, Class<?>>();
+    // Services whose onload plugins wait for startupDeferredPlugins().
+    private final ArrayList<String> deferredStartup = new ArrayList<String>();
+    // How long each plugin took to instantiate and initialize, in creation order.
+    private final LinkedHashMap<String, Long> pluginInitNanos = new LinkedHashMap<String, Long>();
+
+    // For each hook, the created plugins that override it, in dispatch order. Rebuilt whenever
+    // plugins are created or removed, so that per-request hooks skip plugins that don't take part.
+    private volatile CordovaPlugin[][] hookChains = emptyHookChains();
+
     public PluginManager(CordovaWebView cordovaWebView, CordovaInterface cordova, Collection<PluginEntry> pluginEntries) {
         this.ctx = cordova;
         this.app = cordovaWebView;
@@ -63,15 +115,19 @@ public class PluginManager {
         if (isInitialized) {
             this.onPause(false);
             this.onDestroy();
-            pluginMap.clear();
+            synchronized (pluginMap) {
+                pluginMap.clear();
+            }
             entryMap.clear();
         }
         for (PluginEntry entry : pluginEntries) {
             addService(entry);
         }
+        prefetchPluginClasses();
         if (isInitialized) {
             startupPlugins();
         }
+        rebuildHookChains();
     }
 
     /**
@@ -82,25 +138,101 @@ public class PluginManager {
         isInitialized = true;
         this.onPause(false);
         this.onDestroy();
-        pluginMap.clear();
+        synchronized (pluginMap) {
+            pluginMap.clear();
+        }
         this.startupPlugins();
+        rebuildHookChains();
     }
 
     /**
      * Create plugins objects that have onload set.
      */
     private void startupPlugins() {
+        deferredStartup.clear();
         for (PluginEntry entry : entryMap.values()) {
             // Add a null entry to for each non-startup plugin to avoid ConcurrentModificationException
             // When iterating plugins.
-            if (entry.onload) {
+            if (entry.onload && !entry.deferLoad) {
                 getPlugin(entry.service);
             } else {
-                pluginMap.put(entry.service, null);
+                synchronized (pluginMap) {
+                    pluginMap.put(entry.service, null);
+                }
+                if (entry.onload) {
+                    deferredStartup.add(entry.service);
+                }
             }
         }
     }
 
+    /**
+     * Creates onload plugins declared as deferred (onload="deferred"). Called once the first
+     * page has finished loading. Plugins already created by an earlier exec() are skipped.
+     */
+    public void startupDeferredPlugins() {
+        ArrayList<String> services = new ArrayList<String>(deferredStartup);
+        deferredStartup.clear();
+        for (String service : services) {
+            if (entryMap.containsKey(service)) {
+                getPlugin(service);
+            }
+        }
+    }
+
+    /**
+     * Loads the classes of plugins that have not been created yet on background threads,
+     * so that instantiating them later does not pay for class loading. Onload plugins are
+     * loaded first.
+     */
+    private void prefetchPluginClasses() {
+        final ConcurrentLinkedQueue<String> classNames = new ConcurrentLinkedQueue<String>();
+        for (int pass = 0; pass < 2; ++pass) {
+            for (PluginEntry entry : entryMap.values()) {
+                if (entry.plugin == null && entry.onload == (pass == 0) && entry.pluginClass != null
+                        && !"".equals(entry.pluginClass) && !pluginClasses.containsKey(entry.pluginClass)) {
+                    classNames.add(entry.pluginClass);
+                }
+            }
+        }
+        if (classNames.isEmpty()) {
+            return;
+        }
+        // Load without initializing, so that static initializers still run on the thread that
+        // first creates the plugin rather than on a pool thread.
+        final ClassLoader loader = getClass().getClassLoader();
+        Runnable prefetch = new Runnable() {
+            public void run() {
+                String className;
+                while ((className = classNames.poll()) != null) {
+                    try {
+                        pluginClasses.putIfAbsent(className, Class.forName(className, false, loader));
+                    } catch (Throwable e) {
+                        // Reported when the plugin is instantiated.
+                    }
+                }
+            }
+        };
+        int threads = Math.min(CLASS_PREFETCH_THREADS, classNames.size());
+        try {
+            for (int i = 0; i < threads; ++i) {
+                ctx.getThreadPool().execute(prefetch);
+            }
+        } catch (RejectedExecutionException e) {
+            // Classes are loaded on demand instead.
+        }
+    }
+
+    /**
+     * Returns how long each created plugin took to instantiate and initialize, in nanoseconds,
+     * keyed by service name in creation order.
+     */
+    public Map<String, Long> getPluginInitNanos() {
+        synchronized (pluginInitNanos) {
+            return new LinkedHashMap<String, Long>(pluginInitNanos);
+        }
+    }
+
     /**
      * Receives a request for execution and fulfills it by finding the appropriate
      * Java class and calling it's execute method.
@@ -117,22 +249,57 @@ public class PluginManager {
      *                      this is an async plugin call.
      * @param rawArgs       An Array literal string containing any arguments needed in the
      *                      plugin execute method.
+     *
+     * The plugin's execute method is called on the thread chosen by its config.xml
+     * "android-exec-thread" params or its ExecThread annotation; by default, the calling thread.
      */
     public void exec(final String service, final String action, final String callbackId, final String rawArgs) {
-        CordovaPlugin plugin = getPlugin(service);
+        final CordovaPlugin plugin = getPlugin(service);
         if (plugin == null) {
             LOG.d(TAG, "exec() call to unknown plugin: " + service);
             PluginResult cr = new PluginResult(PluginResult.Status.CLASS_NOT_FOUND_EXCEPTION);
             app.sendPluginResult(cr, callbackId);
             return;
         }
-        CallbackContext callbackContext = new CallbackContext(callbackId, app);
+        final CallbackContext callbackContext = new CallbackContext(callbackId, app);
+        String execThread = getExecThread(service, plugin, action);
+        if (ExecThread.BRIDGE.equals(execThread)) {
+            execute(plugin, service, action, rawArgs, callbackContext, true);
+            return;
+        }
+        final boolean onUiThread = ExecThread.UI.equals(execThread);
+        Runnable task = new Runnable() {
+            public void run() {
+                execute(plugin, service, action, rawArgs, callbackContext, onUiThread);
+            }
+        };
+        if (onUiThread) {
+            ctx.getActivity().runOnUiThread(task);
+            return;
+        }
         try {
-            long pluginStartTime = System.currentTimeMillis();
+            getExecutor(execThread).execute(task);
+        } catch (RejectedExecutionException e) {
+            LOG.w(TAG, "exec() call to " + service + "." + action + " rejected: executor " + execThread + " is saturated");
+            callbackContext.error("Executor " + execThread + " is saturated");
+        }
+    }
+
+    private void execute(CordovaPlugin plugin, String service, String action, String rawArgs, CallbackContext callbackContext, boolean warnIfSlow) {
+        // Background work the plugin submits to CordovaExecutor is queued under its service name.
+        String previousTag = CordovaExecutor.enterTag(service);
+        try {
+            long pluginStartTime = System.nanoTime();
             boolean wasValidAction = plugin.execute(action, rawArgs, callbackContext);
-            long duration = System.currentTimeMillis() - pluginStartTime;
+            long durationNanos = System.nanoTime() - pluginStartTime;
+            long duration = durationNanos / 1000000;
+
+            BridgeMetrics metrics = bridgeMetrics;
+            if (metrics != null) {
+                metrics.recordExec(service, action, durationNanos);
+            }
 
-            if (duration > SLOW_EXEC_WARNING_THRESHOLD) {
+            if (warnIfSlow && duration > SLOW_EXEC_WARNING_THRESHOLD) {
                 LOG.w(TAG, "THREAD WARNING: exec() call to " + service + "." + action + " blocked the main thread for " + duration + "ms. Plugin should use CordovaInterface.getThreadPool().");
             }
             if (!wasValidAction) {
@@ -145,6 +312,90 @@ public class PluginManager {
         } catch (Exception e) {
             LOG.e(TAG, "Uncaught exception from plugin", e);
             callbackContext.error(e.getMessage());
+        } finally {
+            CordovaExecutor.exitTag(previousTag);
+        }
+    }
+
+    /**
+     * Sets the registry that exec() latencies are recorded into, or null to stop recording.
+     */
+    public void setBridgeMetrics(BridgeMetrics metrics) {
+        bridgeMetrics = metrics;
+    }
+
+    /**
+     * Returns the bridge metrics registry, or null if metrics are disabled.
+     */
+    public BridgeMetrics getBridgeMetrics() {
+        return bridgeMetrics;
+    }
+
+    public void setBridgeModeSelector(BridgeModeSelector selector) {
+        bridgeModeSelector = selector;
+    }
+
+    /**
+     * Returns the adaptive bridge mode selector, or null if AdaptiveBridgeMode is not set.
+     */
+    public BridgeModeSelector getBridgeModeSelector() {
+        return bridgeModeSelector;
+    }
+
+    /**
+     * Resolves where an action runs: the config.xml entry for the action, then the config.xml
+     * entry for the plugin, then the plugin class's ExecThread annotation.
+     */
+    private String getExecThread(String service, CordovaPlugin plugin, String action) {
+        PluginEntry entry = entryMap.get(service);
+        if (entry != null) {
+            String execThread = entry.actionExecThreads.get(action);
+            if (execThread == null) {
+                execThread = entry.execThread;
+            }
+            if (execThread != null) {
+                return execThread;
+            }
+        }
+        ExecThread annotation;
+        Class<?> pluginClass = plugin.getClass();
+        synchronized (execThreadAnnotations) {
+            if (execThreadAnnotations.containsKey(pluginClass)) {
+                annotation = execThreadAnnotations.get(pluginClass);
+            } else {
+                annotation = pluginClass.getAnnotation(ExecThread.class);
+                execThreadAnnotations.put(pluginClass, annotation);
+            }
+        }
+        if (annotation != null && (annotation.actions().length == 0 || Arrays.asList(annotation.actions()).contains(action))) {
+            return annotation.value();
+        }
+        return ExecThread.BRIDGE;
+    }
+
+    /**
+     * Returns the named executor, creating it on first use. Its size and queue bound come from
+     * the PluginExecutorThreads and PluginExecutorQueueSize preferences. Idle threads exit, so
+     * unused executors hold no threads.
+     */
+    private ThreadPoolExecutor getExecutor(final String name) {
+        synchronized (executors) {
+            ThreadPoolExecutor executor = executors.get(name);
+            if (executor == null) {
+                CordovaPreferences prefs = app.getPreferences();
+                int threads = Math.max(1, prefs.getInteger("PluginExecutorThreads", DEFAULT_EXECUTOR_THREADS));
+                int queueSize = Math.max(1, prefs.getInteger("PluginExecutorQueueSize", DEFAULT_EXECUTOR_QUEUE_SIZE));
+                executor = new ThreadPoolExecutor(threads, threads, EXECUTOR_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+                            private final AtomicInteger count = new AtomicInteger();
+                            public Thread newThread(Runnable r) {
+                                return new Thread(r, "CordovaExec-" + name + "-" + count.incrementAndGet());
+                            }
+                        });
+                executor.allowCoreThreadTimeOut(true);
+                executors.put(name, executor);
+            }
+            return executor;
         }
     }
 
@@ -157,20 +408,49 @@ public class PluginManager {
      * @return              CordovaPlugin or null
      */
     public CordovaPlugin getPlugin(String service) {
-        CordovaPlugin ret = pluginMap.get(service);
-        if (ret == null) {
-            PluginEntry pe = entryMap.get(service);
-            if (pe == null) {
-                return null;
+        CordovaPlugin ret;
+        synchronized (pluginMap) {
+            ret = pluginMap.get(service);
+        }
+        if (ret != null) {
+            return ret;
+        }
+        PluginEntry pe = entryMap.get(service);
+        if (pe == null) {
+            return null;
+        }
+        // Plugins are created from the bridge, from exec threads and from
+        // startupDeferredPlugins() on the UI thread. Whichever gets here first creates the
+        // plugin; the others wait for it and then return the same instance.
+        long duration;
+        synchronized (pe) {
+            synchronized (pluginMap) {
+                ret = pluginMap.get(service);
             }
+            if (ret != null) {
+                return ret;
+            }
+            long startTime = System.nanoTime();
             if (pe.plugin != null) {
                 ret = pe.plugin;
             } else {
                 ret = instantiatePlugin(pe.pluginClass);
             }
             ret.privateInitialize(service, ctx, app, app.getPreferences());
-            pluginMap.put(service, ret);
+            synchronized (pluginMap) {
+                pluginMap.put(service, ret);
+                rebuildHookChains();
+            }
+            duration = System.nanoTime() - startTime;
         }
+        synchronized (pluginInitNanos) {
+            pluginInitNanos.put(service, duration);
+        }
+        BridgeMetrics metrics = bridgeMetrics;
+        if (metrics != null) {
+            metrics.recordPluginInit(service, duration);
+        }
+        LOG.d(TAG, "Initialized plugin " + service + " in " + (duration / 1000) + "us");
         return ret;
     }
 
@@ -196,10 +476,97 @@ public class PluginManager {
         this.entryMap.put(entry.service, entry);
         if (entry.plugin != null) {
             entry.plugin.privateInitialize(entry.service, ctx, app, app.getPreferences());
-            pluginMap.put(entry.service, entry.plugin);
+            synchronized (pluginMap) {
+                pluginMap.put(entry.service, entry.plugin);
+                rebuildHookChains();
+            }
         }
     }
 
+    private static CordovaPlugin[][] emptyHookChains() {
+        CordovaPlugin[][] chains = new CordovaPlugin[HOOK_METHODS.length][];
+        for (int i = 0; i < chains.length; ++i) {
+            chains[i] = NO_PLUGINS;
+        }
+        return chains;
+    }
+
+    /**
+     * Returns a bitmask of the hooks that pluginClass overrides, found by reflection once per class.
+     */
+    private static int getHookMask(Class<?> pluginClass) {
+        synchronized (hookMasks) {
+            Integer mask = hookMasks.get(pluginClass);
+            if (mask == null) {
+                int bits = 0;
+                for (int i = 0; i < HOOK_METHODS.length; ++i) {
+                    try {
+                        if (pluginClass.getMethod(HOOK_METHODS[i], HOOK_PARAMETERS[i]).getDeclaringClass() != CordovaPlugin.class) {
+                            bits |= 1 << i;
+                        }
+                    } catch (NoSuchMethodException e) {
+                        // Not reachable for CordovaPlugin subclasses; treat as not overridden.
+                    }
+                }
+                // The default shouldAllowBridgeAccess() defers to shouldAllowNavigation().
+                if ((bits & (1 << HOOK_SHOULD_ALLOW_NAVIGATION)) != 0) {
+                    bits |= 1 << HOOK_SHOULD_ALLOW_BRIDGE_ACCESS;
+                }
+                mask = bits;
+                hookMasks.put(pluginClass, mask);
+            }
+            return mask;
+        }
+    }
+
+    /**
+     * Rebuilds hookChains from the created plugins. onMessage() and remapUri() follow plugin
+     * creation order; the other hooks follow the order of the plugin entries.
+     *
+     * Plugins are created from several threads, so this holds the pluginMap lock (as do the
+     * pluginMap updates that precede it) to make sure the last chains published include
+     * every created plugin.
+     */
+    private void rebuildHookChains() {
+        synchronized (pluginMap) {
+            buildHookChains();
+        }
+    }
+
+    private void buildHookChains() {
+        ArrayList<ArrayList<CordovaPlugin>> chains = new ArrayList<ArrayList<CordovaPlugin>>(HOOK_METHODS.length);
+        for (int i = 0; i < HOOK_METHODS.length; ++i) {
+            chains.add(new ArrayList<CordovaPlugin>());
+        }
+        for (CordovaPlugin plugin : pluginMap.values()) {
+            if (plugin != null) {
+                int mask = getHookMask(plugin.getClass());
+                if ((mask & (1 << HOOK_ON_MESSAGE)) != 0) {
+                    chains.get(HOOK_ON_MESSAGE).add(plugin);
+                }
+                if ((mask & (1 << HOOK_REMAP_URI)) != 0) {
+                    chains.get(HOOK_REMAP_URI).add(plugin);
+                }
+            }
+        }
+        for (PluginEntry entry : entryMap.values()) {
+            CordovaPlugin plugin = pluginMap.get(entry.service);
+            if (plugin != null) {
+                int mask = getHookMask(plugin.getClass());
+                for (int i = HOOK_SHOULD_ALLOW_REQUEST; i <= HOOK_ON_OVERRIDE_URL_LOADING; ++i) {
+                    if ((mask & (1 << i)) != 0) {
+                        chains.get(i).add(plugin);
+                    }
+                }
+            }
+        }
+        CordovaPlugin[][] ret = new CordovaPlugin[HOOK_METHODS.length][];
+        for (int i = 0; i < HOOK_METHODS.length; ++i) {
+            ret[i] = chains.get(i).isEmpty() ? NO_PLUGINS : chains.get(i).toArray(NO_PLUGINS);
+        }
+        hookChains = ret;
+    }
+
     /**
      * Called when the system is about to start resuming a previous activity.
      *
@@ -307,12 +674,10 @@ public class PluginManager {
      * @return                  Object to stop propagation or null
      */
     public Object postMessage(String id, Object data) {
-        for (CordovaPlugin plugin : this.pluginMap.values()) {
-            if (plugin != null) {
-                Object obj = plugin.onMessage(id, data);
-                if (obj != null) {
-                    return obj;
-                }
+        for (CordovaPlugin plugin : hookChains[HOOK_ON_MESSAGE]) {
+            Object obj = plugin.onMessage(id, data);
+            if (obj != null) {
+                return obj;
             }
         }
         return ctx.onMessage(id, data);
@@ -341,13 +706,10 @@ public class PluginManager {
      *                  false to block the resource.
      */
     public boolean shouldAllowRequest(String url) {
-        for (PluginEntry entry : this.entryMap.values()) {
-            CordovaPlugin plugin = pluginMap.get(entry.service);
-            if (plugin != null) {
-                Boolean result = plugin.shouldAllowRequest(url);
-                if (result != null) {
-                    return result;
-                }
+        for (CordovaPlugin plugin : hookChains[HOOK_SHOULD_ALLOW_REQUEST]) {
+            Boolean result = plugin.shouldAllowRequest(url);
+            if (result != null) {
+                return result;
             }
         }
 
@@ -379,13 +741,10 @@ public class PluginManager {
      *                  false to block the navigation.
      */
     public boolean shouldAllowNavigation(String url) {
-        for (PluginEntry entry : this.entryMap.values()) {
-            CordovaPlugin plugin = pluginMap.get(entry.service);
-            if (plugin != null) {
-                Boolean result = plugin.shouldAllowNavigation(url);
-                if (result != null) {
-                    return result;
-                }
+        for (CordovaPlugin plugin : hookChains[HOOK_SHOULD_ALLOW_NAVIGATION]) {
+            Boolean result = plugin.shouldAllowNavigation(url);
+            if (result != null) {
+                return result;
             }
         }
 
@@ -398,13 +757,10 @@ public class PluginManager {
      * Called when the webview is requesting the exec() bridge be enabled.
      */
     public boolean shouldAllowBridgeAccess(String url) {
-        for (PluginEntry entry : this.entryMap.values()) {
-            CordovaPlugin plugin = pluginMap.get(entry.service);
-            if (plugin != null) {
-                Boolean result = plugin.shouldAllowBridgeAccess(url);
-                if (result != null) {
-                    return result;
-                }
+        for (CordovaPlugin plugin : hookChains[HOOK_SHOULD_ALLOW_BRIDGE_ACCESS]) {
+            Boolean result = plugin.shouldAllowBridgeAccess(url);
+            if (result != null) {
+                return result;
             }
         }
 
@@ -425,13 +781,10 @@ public class PluginManager {
      *                  false to block the intent.
      */
     public Boolean shouldOpenExternalUrl(String url) {
-        for (PluginEntry entry : this.entryMap.values()) {
-            CordovaPlugin plugin = pluginMap.get(entry.service);
-            if (plugin != null) {
-                Boolean result = plugin.shouldOpenExternalUrl(url);
-                if (result != null) {
-                    return result;
-                }
+        for (CordovaPlugin plugin : hookChains[HOOK_SHOULD_OPEN_EXTERNAL_URL]) {
+            Boolean result = plugin.shouldOpenExternalUrl(url);
+            if (result != null) {
+                return result;
             }
         }
         // Default policy:
@@ -446,9 +799,8 @@ public class PluginManager {
      * @return                  Return false to allow the URL to load, return true to prevent the URL from loading.
      */
     public boolean onOverrideUrlLoading(String url) {
-        for (PluginEntry entry : this.entryMap.values()) {
-            CordovaPlugin plugin = pluginMap.get(entry.service);
-            if (plugin != null && plugin.onOverrideUrlLoading(url)) {
+        for (CordovaPlugin plugin : hookChains[HOOK_ON_OVERRIDE_URL_LOADING]) {
+            if (plugin.onOverrideUrlLoading(url)) {
                 return true;
             }
         }
@@ -467,12 +819,10 @@ public class PluginManager {
     }
 
     Uri remapUri(Uri uri) {
-        for (CordovaPlugin plugin : this.pluginMap.values()) {
-            if (plugin != null) {
-                Uri ret = plugin.remapUri(uri);
-                if (ret != null) {
-                    return ret;
-                }
+        for (CordovaPlugin plugin : hookChains[HOOK_REMAP_URI]) {
+            Uri ret = plugin.remapUri(uri);
+            if (ret != null) {
+                return ret;
             }
         }
         return null;
@@ -486,7 +836,10 @@ public class PluginManager {
         try {
             Class<?> c = null;
             if ((className != null) && !("".equals(className))) {
-                c = Class.forName(className);
+                c = pluginClasses.get(className);
+                if (c == null) {
+                    c = Class.forName(className);
+                }
             }
             if (c != null & CordovaPlugin.class.isAssignableFrom(c)) {
                 ret = (CordovaPlugin) c.newInstance();
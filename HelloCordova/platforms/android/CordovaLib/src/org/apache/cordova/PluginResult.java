@@ -29,8 +29,11 @@ public class PluginResult {
     private final int status;
     private final int messageType;
     private boolean keepCallback = false;
+    private boolean coalesce = false;
+    private boolean chunked = false;
     private String strMessage;
     private String encodedMessage;
+    private byte[] binaryMessage;
     private List<PluginResult> multipartMessages;
 
     public PluginResult(Status status) {
@@ -80,7 +83,8 @@ public class PluginResult {
     public PluginResult(Status status, byte[] data, boolean binaryString) {
         this.status = status.ordinal();
         this.messageType = binaryString ? MESSAGE_TYPE_BINARYSTRING : MESSAGE_TYPE_ARRAYBUFFER;
-        this.encodedMessage = Base64.encodeToString(data, Base64.NO_WRAP);
+        // Base64 encoding is deferred, since large payloads may be sent without it.
+        this.binaryMessage = data;
     }
     
     // The keepCallback and status of multipartMessages are ignored.
@@ -94,6 +98,23 @@ public class PluginResult {
         this.keepCallback = b;
     }
 
+    /**
+     * Lets this result replace an earlier keepCallback result for the same callbackId that
+     * is still waiting to be sent to JS. Only applies to keepCallback results, so that
+     * progress updates can be collapsed while final results are always delivered in order.
+     */
+    public void setCoalesce(boolean b) {
+        this.coalesce = b;
+    }
+
+    /**
+     * Lets the message queue split this result into bounded fragments when its encoded form
+     * is large. JS reassembles the fragments before invoking the callback.
+     */
+    public void setChunked(boolean b) {
+        this.chunked = b;
+    }
+
     public int getStatus() {
         return status;
     }
@@ -104,11 +125,22 @@ public class PluginResult {
 
     public String getMessage() {
         if (encodedMessage == null) {
-            encodedMessage = JSONObject.quote(strMessage);
+            if (binaryMessage != null) {
+                encodedMessage = Base64.encodeToString(binaryMessage, Base64.NO_WRAP);
+            } else {
+                encodedMessage = JSONObject.quote(strMessage);
+            }
         }
         return encodedMessage;
     }
 
+    /**
+     * Returns the raw payload of an ARRAYBUFFER or BINARYSTRING result, or null for other types.
+     */
+    public byte[] getBinaryMessage() {
+        return binaryMessage;
+    }
+
     public int getMultipartMessagesSize() {
         return multipartMessages.size();
     }
@@ -129,6 +161,14 @@ public class PluginResult {
         return this.keepCallback;
     }
 
+    public boolean getCoalesce() {
+        return this.coalesce;
+    }
+
+    public boolean getChunked() {
+        return this.chunked;
+    }
+
     @Deprecated // Use sendPluginResult instead of sendJavascript.
     public String getJSONString() {
         return "{\"status\":" + this.status + ",\"message\":" + this.getMessage() + ",\"keepCallback\":" + this.keepCallback + "}";
@@ -0,0 +1,367 @@
+/*
+       Licensed to the Apache Software Foundation (ASF) under one
+       or more contributor license agreements.  See the NOTICE file
+       distributed with this work for additional information
+       regarding copyright ownership.  The ASF licenses this file
+       to you under the Apache License, Version 2.0 (the
+       "License"); you may not use this file except in compliance
+       with the License.  You may obtain a copy of the License at
+
+         http://www.apache.org/licenses/LICENSE-2.0
+
+       Unless required by applicable law or agreed to in writing,
+       software distributed under the License is distributed on an
+       "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+       KIND, either express or implied.  See the License for the
+       specific language governing permissions and limitations
+       under the License.
+*/
+package org.apache.cordova;
+
+import android.net.Uri;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Caches the responses that CordovaResourceApi serves for file:// and asset URIs.
+ *
+ * Small resources are kept on the heap as byte arrays, in an LRU bounded by a byte budget.
+ * Resources larger than the per-entry limit are streamed. They are not memory-mapped, since a
+ * file truncated under a mapping faults the reader. Assets are immutable, and cached files are
+ * revalidated against their size and modification time on every hit.
+ *
+ * Plugins can warm() resources they know will be requested, and invalidate() ones they change.
+ */
+public class ResourceCache {
+    private static final int DEFAULT_MAX_BYTES = 4 * 1024 * 1024;
+    private static final int DEFAULT_MAX_ENTRY_BYTES = 256 * 1024;
+
+    private static final class CachedResource {
+        final byte[] data;
+        final String mimeType;
+        // Size and modification time of the file when cached, or -1 for assets.
+        final long fileLength;
+        final long fileLastModified;
+
+        CachedResource(byte[] data, String mimeType, long fileLength, long fileLastModified) {
+            this.data = data;
+            this.mimeType = mimeType;
+            this.fileLength = fileLength;
+            this.fileLastModified = fileLastModified;
+        }
+
+        long length() {
+            return data.length;
+        }
+
+        InputStream open() {
+            return new ByteArrayInputStream(data);
+        }
+    }
+
+    private final CordovaResourceApi resourceApi;
+    private int maxBytes = DEFAULT_MAX_BYTES;
+    private int maxEntryBytes = DEFAULT_MAX_ENTRY_BYTES;
+    private long heapBytes;
+    private int hits;
+    private int misses;
+
+    // Kept in access order, least recently used first.
+    private final LinkedHashMap<String, CachedResource> heapEntries = new LinkedHashMap<String, CachedResource>(16, 0.75f, true);
+
+    ResourceCache(CordovaResourceApi resourceApi) {
+        this.resourceApi = resourceApi;
+    }
+
+    /**
+     * Sets the heap budget and the largest resource kept on the heap, in bytes. A budget of
+     * 0 disables caching.
+     */
+    public synchronized void setLimits(int maxBytes, int maxEntryBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+        this.maxEntryBytes = Math.max(0, Math.min(maxEntryBytes, this.maxBytes));
+        if (this.maxBytes == 0) {
+            clear();
+        } else {
+            trim();
+        }
+    }
+
+    public synchronized boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    public synchronized int getHitCount() {
+        return hits;
+    }
+
+    public synchronized int getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Opens uri like CordovaResourceApi.openForRead(uri, true), serving it from the cache when
+     * possible and caching it if it is a file:// or asset URI.
+     */
+    public CordovaResourceApi.OpenForReadResult openForRead(Uri uri) throws IOException {
+        if (!isCacheable(uri)) {
+            return resourceApi.openForRead(uri, true);
+        }
+        String key = uri.toString();
+        CachedResource cached = lookup(key, uri);
+        if (cached != null) {
+            return new CordovaResourceApi.OpenForReadResult(uri, cached.open(), cached.mimeType, cached.length(), null);
+        }
+        if (CordovaResourceApi.getUriType(uri) == CordovaResourceApi.URI_TYPE_FILE) {
+            return openFile(key, uri);
+        }
+        return openAsset(key, uri);
+    }
+
+    /**
+     * A byte range of a resource, as returned by openRangeForRead().
+     */
+    public static final class RangeResult {
+        /** The range's stream; its length is that of the range. */
+        public final CordovaResourceApi.OpenForReadResult result;
+        public final long start;
+        public final long end;
+        public final long totalLength;
+
+        RangeResult(CordovaResourceApi.OpenForReadResult result, long start, long end, long totalLength) {
+            this.result = result;
+            this.start = start;
+            this.end = end;
+            this.totalLength = totalLength;
+        }
+    }
+
+    /**
+     * Like openForRead(uri), but returns only the bytes from start to end inclusive. An end
+     * of -1 means the end of the resource. Returns null if the resource's length is unknown
+     * or the range is not satisfiable.
+     */
+    public RangeResult openRangeForRead(Uri uri, long start, long end) throws IOException {
+        CordovaResourceApi.OpenForReadResult result = openForRead(uri);
+        if (result.length < 0 || start < 0 || start >= result.length || (end != -1 && end < start)) {
+            result.inputStream.close();
+            return null;
+        }
+        long last = end == -1 ? result.length - 1 : Math.min(end, result.length - 1);
+        InputStream inputStream = result.inputStream;
+        long skipped = 0;
+        while (skipped < start) {
+            long n = inputStream.skip(start - skipped);
+            if (n <= 0) {
+                inputStream.close();
+                return null;
+            }
+            skipped += n;
+        }
+        long length = last - start + 1;
+        return new RangeResult(new CordovaResourceApi.OpenForReadResult(uri, new BoundedInputStream(inputStream, length), result.mimeType, length, result.assetFd),
+                start, last, result.length);
+    }
+
+    /**
+     * Loads uri into the cache ahead of its first request. Must not be called on the UI thread.
+     */
+    public void warm(Uri uri) throws IOException {
+        CordovaResourceApi.OpenForReadResult result = openForRead(uri);
+        result.inputStream.close();
+    }
+
+    /**
+     * Drops any cached copy of uri.
+     */
+    public synchronized void invalidate(Uri uri) {
+        CachedResource removed = heapEntries.remove(uri.toString());
+        if (removed != null) {
+            heapBytes -= removed.length();
+        }
+    }
+
+    public synchronized void clear() {
+        heapEntries.clear();
+        heapBytes = 0;
+    }
+
+    private boolean isCacheable(Uri uri) {
+        if (!isEnabled()) {
+            return false;
+        }
+        int uriType = CordovaResourceApi.getUriType(uri);
+        if (uriType == CordovaResourceApi.URI_TYPE_FILE) {
+            return true;
+        }
+        // Binary bridge payloads are single-use.
+        return uriType == CordovaResourceApi.URI_TYPE_ASSET && !BinaryBridge.isBinaryBridgeUri(uri);
+    }
+
+    private synchronized CachedResource lookup(String key, Uri uri) {
+        CachedResource cached = heapEntries.get(key);
+        if (cached != null && cached.fileLength != -1) {
+            File file = new File(uri.getPath());
+            if (file.length() != cached.fileLength || file.lastModified() != cached.fileLastModified) {
+                heapEntries.remove(key);
+                heapBytes -= cached.length();
+                cached = null;
+            }
+        }
+        if (cached != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return cached;
+    }
+
+    private CordovaResourceApi.OpenForReadResult openFile(String key, Uri uri) throws IOException {
+        File file = new File(uri.getPath());
+        long lastModified = file.lastModified();
+        FileInputStream inputStream = new FileInputStream(file);
+        boolean streaming = false;
+        try {
+            FileChannel channel = inputStream.getChannel();
+            long length = channel.size();
+            // CordovaResourceApi memoizes MIME types, so streamed files still skip that lookup.
+            String mimeType = resourceApi.getMimeType(uri);
+            int limit;
+            synchronized (this) {
+                limit = maxEntryBytes;
+            }
+            if (length > limit) {
+                streaming = true;
+                return new CordovaResourceApi.OpenForReadResult(uri, inputStream, mimeType, length, null);
+            }
+            byte[] data = new byte[(int) length];
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+                // Keep reading.
+            }
+            if (buffer.hasRemaining()) {
+                throw new IOException("File changed while reading: " + uri);
+            }
+            CachedResource cached = new CachedResource(data, mimeType, length, lastModified);
+            putHeap(key, cached);
+            return new CordovaResourceApi.OpenForReadResult(uri, cached.open(), mimeType, length, null);
+        } finally {
+            if (!streaming) {
+                inputStream.close();
+            }
+        }
+    }
+
+    private CordovaResourceApi.OpenForReadResult openAsset(String key, Uri uri) throws IOException {
+        CordovaResourceApi.OpenForReadResult result = resourceApi.openForRead(uri, true);
+        if (result.length > maxEntryBytes) {
+            return result;
+        }
+        // Compressed assets have an unknown length, so read up to the limit to find out.
+        int limit;
+        synchronized (this) {
+            limit = maxEntryBytes;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(result.length >= 0 ? (int) result.length : 8192);
+        byte[] buffer = new byte[8192];
+        int total = 0;
+        int n;
+        while (total <= limit && (n = result.inputStream.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+            total += n;
+        }
+        byte[] data = out.toByteArray();
+        if (total > limit) {
+            // Too large to cache: serve what was read followed by the rest of the stream.
+            InputStream inputStream = new SequenceInputStream(new ByteArrayInputStream(data), result.inputStream);
+            return new CordovaResourceApi.OpenForReadResult(uri, inputStream, result.mimeType, result.length, result.assetFd);
+        }
+        result.inputStream.close();
+        if (result.assetFd != null) {
+            result.assetFd.close();
+        }
+        putHeap(key, new CachedResource(data, result.mimeType, -1, -1));
+        return new CordovaResourceApi.OpenForReadResult(uri, new ByteArrayInputStream(data), result.mimeType, data.length, null);
+    }
+
+    private synchronized void putHeap(String key, CachedResource cached) {
+        if (maxBytes == 0 || cached.length() > maxEntryBytes) {
+            return;
+        }
+        CachedResource previous = heapEntries.put(key, cached);
+        if (previous != null) {
+            heapBytes -= previous.length();
+        }
+        heapBytes += cached.length();
+        trim();
+    }
+
+    private void trim() {
+        Iterator<CachedResource> it = heapEntries.values().iterator();
+        while (heapBytes > maxBytes && it.hasNext()) {
+            heapBytes -= it.next().length();
+            it.remove();
+        }
+    }
+
+    private static class BoundedInputStream extends FilterInputStream {
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long length) {
+            super(in);
+            remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b != -1) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = in.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
@@ -20,7 +20,10 @@ package org.apache.cordova;
 
 import java.net.MalformedURLException;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -30,10 +33,15 @@ import android.net.Uri;
 
 public class Whitelist {
     private static class URLPattern {
-        public Pattern scheme;
-        public Pattern host;
+        // Lower-cased scheme, or null for any scheme.
+        public String scheme;
+        // Lower-cased host, without any "*." prefix, or null for any host.
+        public String host;
+        public boolean subdomains;
         public Integer port;
         public Pattern path;
+        // Bit of scheme in Whitelist.schemeBits, or all bits for any scheme.
+        long schemeMask = ~0L;
 
         private String regexFromPattern(String pattern, boolean allowWildcards) {
             final String toReplace = "\\.[]{}()^$?+|";
@@ -55,14 +63,15 @@ public class Whitelist {
                 if (scheme == null || "*".equals(scheme)) {
                     this.scheme = null;
                 } else {
-                    this.scheme = Pattern.compile(regexFromPattern(scheme, false), Pattern.CASE_INSENSITIVE);
+                    this.scheme = scheme.toLowerCase(Locale.ENGLISH);
                 }
                 if ("*".equals(host)) {
                     this.host = null;
                 } else if (host.startsWith("*.")) {
-                    this.host = Pattern.compile("([a-z0-9.-]*\\.)?" + regexFromPattern(host.substring(2), false), Pattern.CASE_INSENSITIVE);
+                    this.host = host.substring(2).toLowerCase(Locale.ENGLISH);
+                    this.subdomains = true;
                 } else {
-                    this.host = Pattern.compile(regexFromPattern(host, false), Pattern.CASE_INSENSITIVE);
+                    this.host = host.toLowerCase(Locale.ENGLISH);
                 }
                 if (port == null || "*".equals(port)) {
                     this.port = null;
@@ -79,10 +88,14 @@ public class Whitelist {
             }
         }
 
-        public boolean matches(Uri uri) {
+        /**
+         * Matches the parts of uri that the host index has not already checked.
+         * scheme is lower-cased.
+         */
+        public boolean matches(Uri uri, String scheme, long schemeBit) {
             try {
-                return ((scheme == null || scheme.matcher(uri.getScheme()).matches()) &&
-                        (host == null || host.matcher(uri.getHost()).matches()) &&
+                return ((schemeMask & schemeBit) != 0 &&
+                        (this.scheme == null || this.scheme.equals(scheme)) &&
                         (port == null || port.equals(uri.getPort())) &&
                         (path == null || path.matcher(uri.getPath()).matches()));
             } catch (Exception e) {
@@ -92,14 +105,120 @@ public class Whitelist {
         }
     }
 
+    /**
+     * Patterns sharing a host key, with the union of their scheme masks so that a bucket
+     * can be skipped without looking at its patterns.
+     */
+    private static class PatternBucket {
+        final ArrayList<URLPattern> patterns = new ArrayList<URLPattern>();
+        long schemeMask;
+
+        void add(URLPattern pattern) {
+            patterns.add(pattern);
+            schemeMask |= pattern.schemeMask;
+        }
+
+        boolean matches(Uri uri, String scheme, long schemeBit) {
+            if ((schemeMask & schemeBit) == 0) {
+                return false;
+            }
+            for (int i = 0; i < patterns.size(); ++i) {
+                if (patterns.get(i).matches(uri, scheme, schemeBit)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A node of the trie of "*.domain" patterns, keyed by host labels from right to left.
+     */
+    private static class HostTrieNode {
+        HashMap<String, HostTrieNode> children;
+        PatternBucket bucket;
+    }
+
+    private static final int DECISION_CACHE_SIZE = 256;
+    // URLs longer than this are checked but not cached, to bound the cache's memory.
+    private static final int MAX_CACHED_URL_LENGTH = 2048;
+
     private ArrayList<URLPattern> whiteList;
 
+    // Compiled form of whiteList: patterns for any host, exact hosts, and subdomain wildcards.
+    private final PatternBucket anyHost = new PatternBucket();
+    private final HashMap<String, PatternBucket> exactHosts = new HashMap<String, PatternBucket>();
+    private final HostTrieNode subdomainTrie = new HostTrieNode();
+    // Bit assigned to each scheme named by a pattern. Schemes past the 62nd share bit 62, and
+    // bit 63 stands for schemes that no pattern names, which only any-scheme patterns accept.
+    private static final long UNNAMED_SCHEME_BIT = 1L << 63;
+    private final HashMap<String, Long> schemeBits = new HashMap<String, Long>();
+
+    // Recent decisions, most recently used last.
+    private final LinkedHashMap<String, Boolean> decisionCache = new LinkedHashMap<String, Boolean>(DECISION_CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > DECISION_CACHE_SIZE;
+        }
+    };
+
     public static final String TAG = "Whitelist";
 
     public Whitelist() {
         this.whiteList = new ArrayList<URLPattern>();
     }
 
+    private synchronized void addPattern(URLPattern pattern) {
+        whiteList.add(pattern);
+        if (pattern.scheme != null) {
+            pattern.schemeMask = schemeBit(pattern.scheme, true);
+        }
+        if (pattern.host == null) {
+            anyHost.add(pattern);
+        } else if (!pattern.subdomains) {
+            PatternBucket bucket = exactHosts.get(pattern.host);
+            if (bucket == null) {
+                bucket = new PatternBucket();
+                exactHosts.put(pattern.host, bucket);
+            }
+            bucket.add(pattern);
+        } else {
+            HostTrieNode node = subdomainTrie;
+            String[] labels = pattern.host.split("\\.", -1);
+            for (int i = labels.length - 1; i >= 0; --i) {
+                if (node.children == null) {
+                    node.children = new HashMap<String, HostTrieNode>();
+                }
+                HostTrieNode child = node.children.get(labels[i]);
+                if (child == null) {
+                    child = new HostTrieNode();
+                    node.children.put(labels[i], child);
+                }
+                node = child;
+            }
+            if (node.bucket == null) {
+                node.bucket = new PatternBucket();
+            }
+            node.bucket.add(pattern);
+        }
+        decisionCache.clear();
+    }
+
+    /**
+     * Returns the bit for a lower-cased scheme, assigning one if assign is set.
+     */
+    private long schemeBit(String scheme, boolean assign) {
+        Long bit = schemeBits.get(scheme);
+        if (bit == null) {
+            if (!assign) {
+                return UNNAMED_SCHEME_BIT;
+            }
+            bit = 1L << Math.min(schemeBits.size(), 62);
+            schemeBits.put(scheme, bit);
+        }
+        return bit;
+    }
+
     /* Match patterns (from http://developer.chrome.com/extensions/match_patterns.html)
      *
      * <url-pattern> := <scheme>://<host><path>
@@ -131,10 +250,10 @@ public class Whitelist {
                         String path = m.group(9);
                         if (scheme == null) {
                             // XXX making it stupid friendly for people who forget to include protocol/SSL
-                            whiteList.add(new URLPattern("http", host, port, path));
-                            whiteList.add(new URLPattern("https", host, port, path));
+                            addPattern(new URLPattern("http", host, port, path));
+                            addPattern(new URLPattern("https", host, port, path));
                         } else {
-                            whiteList.add(new URLPattern(scheme, host, port, path));
+                            addPattern(new URLPattern(scheme, host, port, path));
                         }
                     }
                 }
@@ -151,20 +270,69 @@ public class Whitelist {
      * @param uri
      * @return true if wide open or whitelisted
      */
-    public boolean isUrlWhiteListed(String uri) {
+    public synchronized boolean isUrlWhiteListed(String uri) {
         // If there is no whitelist, then it's wide open
         if (whiteList == null) return true;
 
-        Uri parsedUri = Uri.parse(uri);
-        // Look for match in white list
-        Iterator<URLPattern> pit = whiteList.iterator();
-        while (pit.hasNext()) {
-            URLPattern p = pit.next();
-            if (p.matches(parsedUri)) {
+        Boolean cached = decisionCache.get(uri);
+        if (cached != null) {
+            return cached;
+        }
+        boolean ret = matches(Uri.parse(uri));
+        if (uri.length() <= MAX_CACHED_URL_LENGTH) {
+            decisionCache.put(uri, ret);
+        }
+        return ret;
+    }
+
+    /**
+     * Looks up the patterns for the URL's host: any-host patterns, the exact host, then
+     * each "*.domain" suffix of the host, so the cost is proportional to the host's length.
+     */
+    private boolean matches(Uri uri) {
+        String scheme = uri.getScheme();
+        scheme = scheme == null ? "" : scheme.toLowerCase(Locale.ENGLISH);
+        long bit = schemeBit(scheme, false);
+        if (anyHost.matches(uri, scheme, bit)) {
+            return true;
+        }
+        String host = uri.getHost();
+        if (host == null) {
+            return false;
+        }
+        host = host.toLowerCase(Locale.ENGLISH);
+        PatternBucket bucket = exactHosts.get(host);
+        if (bucket != null && bucket.matches(uri, scheme, bit)) {
+            return true;
+        }
+        HostTrieNode node = subdomainTrie;
+        int end = host.length();
+        while (node.children != null && end >= 0) {
+            int start = host.lastIndexOf('.', end - 1);
+            node = node.children.get(host.substring(start + 1, end));
+            if (node == null) {
+                break;
+            }
+            if (node.bucket != null && isSubdomainPrefix(host, start + 1) && node.bucket.matches(uri, scheme, bit)) {
                 return true;
             }
+            end = start;
         }
         return false;
     }
 
+    /**
+     * Whether host.substring(0, labelStart) may precede the domain of a "*.domain" pattern:
+     * empty, or host name characters ending in a dot.
+     */
+    private static boolean isSubdomainPrefix(String host, int labelStart) {
+        for (int i = 0; i < labelStart; ++i) {
+            char c = host.charAt(i);
+            if (!((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '.' || c == '-')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
 }
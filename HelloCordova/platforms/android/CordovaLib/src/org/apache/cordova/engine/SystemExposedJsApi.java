@@ -41,6 +41,11 @@ class SystemExposedJsApi implements ExposedJsApi {
         return bridge.jsExec(bridgeSecret, service, action, callbackId, arguments);
     }
 
+    @JavascriptInterface
+    public String execBatch(int bridgeSecret, String calls) throws JSONException, IllegalAccessException {
+        return bridge.jsExecBatch(bridgeSecret, calls);
+    }
+
     @JavascriptInterface
     public void setNativeToJsBridgeMode(int bridgeSecret, int value) throws IllegalAccessException {
         bridge.jsSetNativeToJsBridgeMode(bridgeSecret, value);
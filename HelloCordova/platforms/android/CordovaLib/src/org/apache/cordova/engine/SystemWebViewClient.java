@@ -29,20 +29,27 @@ import android.os.Build;
 import android.webkit.ClientCertRequest;
 import android.webkit.HttpAuthHandler;
 import android.webkit.SslErrorHandler;
+import android.webkit.WebResourceRequest;
 import android.webkit.WebResourceResponse;
 import android.webkit.WebView;
 import android.webkit.WebViewClient;
 
 import org.apache.cordova.AuthenticationToken;
+import org.apache.cordova.BinaryBridge;
 import org.apache.cordova.CordovaClientCertRequest;
 import org.apache.cordova.CordovaHttpAuthHandler;
 import org.apache.cordova.CordovaResourceApi;
 import org.apache.cordova.LOG;
 import org.apache.cordova.PluginManager;
+import org.apache.cordova.ResourceCache;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 
 /**
@@ -55,6 +62,8 @@ import java.util.Hashtable;
 public class SystemWebViewClient extends WebViewClient {
 
     private static final String TAG = "SystemWebViewClient";
+    // A single "bytes=start-[end]" range. Other forms are answered with the whole resource.
+    private static final Pattern BYTE_RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
     protected final SystemWebViewEngine parentEngine;
     private boolean doClearHistory = false;
     boolean isCurrentlyLoading;
@@ -319,6 +328,28 @@ public class SystemWebViewClient extends WebViewClient {
     @TargetApi(Build.VERSION_CODES.HONEYCOMB)
     @Override
     public WebResourceResponse shouldInterceptRequest(WebView view, String url) {
+        return interceptRequest(url, null);
+    }
+
+    @Override
+    @TargetApi(21)
+    public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+        String range = null;
+        Map<String, String> headers = request.getRequestHeaders();
+        if (headers != null) {
+            range = headers.get("Range");
+            if (range == null) {
+                range = headers.get("range");
+            }
+        }
+        if (range == null) {
+            // Keep subclasses that override the String overload working.
+            return shouldInterceptRequest(view, request.getUrl().toString());
+        }
+        return interceptRequest(request.getUrl().toString(), range);
+    }
+
+    private WebResourceResponse interceptRequest(String url, String range) {
         try {
             // Check the against the whitelist and lock out access to the WebView directory
             // Changing this will cause problems for your application
@@ -333,8 +364,16 @@ public class SystemWebViewClient extends WebViewClient {
             // Allow plugins to intercept WebView requests.
             Uri remappedUri = resourceApi.remapUri(origUri);
 
-            if (!origUri.equals(remappedUri) || needsSpecialsInAssetUrlFix(origUri) || needsKitKatContentUrlFix(origUri)) {
-                CordovaResourceApi.OpenForReadResult result = resourceApi.openForRead(remappedUri, true);
+            if (!origUri.equals(remappedUri) || needsSpecialsInAssetUrlFix(origUri) || needsKitKatContentUrlFix(origUri)
+                    || BinaryBridge.isBinaryBridgeUri(origUri)) {
+                ResourceCache cache = resourceApi.getResourceCache();
+                if (range != null && Build.VERSION.SDK_INT >= 21) {
+                    WebResourceResponse response = openRange(cache, remappedUri, range);
+                    if (response != null) {
+                        return response;
+                    }
+                }
+                CordovaResourceApi.OpenForReadResult result = cache.openForRead(remappedUri);
                 return new WebResourceResponse(result.mimeType, "UTF-8", result.inputStream);
             }
             // If we don't need to special-case the request, let the browser load it.
@@ -348,6 +387,34 @@ public class SystemWebViewClient extends WebViewClient {
         }
     }
 
+    /**
+     * Answers a Range request with a 206 response, or returns null to send the whole resource.
+     */
+    @TargetApi(21)
+    private static WebResourceResponse openRange(ResourceCache cache, Uri uri, String range) throws IOException {
+        Matcher m = BYTE_RANGE.matcher(range.trim());
+        if (!m.matches()) {
+            return null;
+        }
+        long start;
+        long end;
+        try {
+            start = Long.parseLong(m.group(1));
+            end = m.group(2).length() == 0 ? -1 : Long.parseLong(m.group(2));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        ResourceCache.RangeResult ret = cache.openRangeForRead(uri, start, end);
+        if (ret == null) {
+            return null;
+        }
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Accept-Ranges", "bytes");
+        headers.put("Content-Range", "bytes " + ret.start + "-" + ret.end + "/" + ret.totalLength);
+        headers.put("Content-Length", String.valueOf(ret.result.length));
+        return new WebResourceResponse(ret.result.mimeType, "UTF-8", 206, "Partial Content", headers, ret.result.inputStream);
+    }
+
     private static boolean needsKitKatContentUrlFix(Uri uri) {
         return android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.KITKAT && "content".equals(uri.getScheme());
     }
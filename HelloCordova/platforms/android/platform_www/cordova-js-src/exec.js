@@ -61,6 +61,9 @@ var cordova = require('cordova'),
 
 var messagesFromNative = [];
 var isProcessing = false;
+// exec() calls collected by androidExec.batch(), as [service, action, callbackId, argsJson].
+var pendingBatch = [];
+var batchDepth = 0;
 var resolvedPromise = typeof Promise == 'undefined' ? null : Promise.resolve();
 var nextTick = resolvedPromise ? function(fn) { resolvedPromise.then(fn); } : function(fn) { setTimeout(fn); };
 
@@ -94,6 +97,11 @@ function androidExec(success, fail, service, action, args) {
         cordova.callbacks[callbackId] = {success:success, fail:fail};
     }
 
+    if (batchDepth > 0) {
+        pendingBatch.push([service, action, callbackId, argsJson]);
+        return;
+    }
+
     var msgs = nativeApiProvider.get().exec(bridgeSecret, service, action, callbackId, argsJson);
     // If argsJson was received by Java as null, try again with the PROMPT bridge mode.
     // This happens in rare circumstances, such as when certain Unicode characters are passed over the bridge on a Galaxy S2.  See CB-2666.
@@ -108,6 +116,66 @@ function androidExec(success, fail, service, action, args) {
     }
 }
 
+/**
+ * Runs fn, sending the exec() calls it makes to native in a single bridge crossing once it
+ * returns. Batches may be nested; calls are sent when the outermost batch ends.
+ */
+androidExec.batch = function(fn) {
+    batchDepth++;
+    try {
+        fn();
+    } finally {
+        if (--batchDepth === 0) {
+            flushBatch();
+        }
+    }
+};
+
+function flushBatch() {
+    if (pendingBatch.length === 0) {
+        return;
+    }
+    var calls = pendingBatch;
+    pendingBatch = [];
+    var api = nativeApiProvider.get();
+    var msgs;
+    if (api.execBatch) {
+        msgs = api.execBatch(bridgeSecret, JSON.stringify(calls));
+        // See CB-2666: retry over the PROMPT bridge if the payload arrived as null.
+        if (jsToNativeBridgeMode == jsToNativeModes.JS_OBJECT && msgs === "@Null arguments.") {
+            androidExec.setJsToNativeBridgeMode(jsToNativeModes.PROMPT);
+            msgs = nativeApiProvider.get().execBatch(bridgeSecret, JSON.stringify(calls));
+            androidExec.setJsToNativeBridgeMode(jsToNativeModes.JS_OBJECT);
+        }
+        if (msgs && msgs !== "@Null arguments.") {
+            messagesFromNative.push(msgs);
+        }
+    } else {
+        // The native side predates batching, so send the calls one at a time.
+        for (var i = 0; i < calls.length; i++) {
+            msgs = execBatchedCall(calls[i]);
+            if (msgs) {
+                messagesFromNative.push(msgs);
+            }
+        }
+    }
+    if (messagesFromNative.length) {
+        nextTick(processMessages);
+    }
+}
+
+// Sends one call collected by batch(), with the same CB-2666 retry as androidExec().
+// Returns the messages from native, or null if the arguments never arrived.
+function execBatchedCall(call) {
+    var msgs = nativeApiProvider.get().exec(bridgeSecret, call[0], call[1], call[2], call[3]);
+    if (jsToNativeBridgeMode == jsToNativeModes.JS_OBJECT && msgs === "@Null arguments.") {
+        androidExec.setJsToNativeBridgeMode(jsToNativeModes.PROMPT);
+        msgs = nativeApiProvider.get().exec(bridgeSecret, call[0], call[1], call[2], call[3]);
+        androidExec.setJsToNativeBridgeMode(jsToNativeModes.JS_OBJECT);
+    }
+    return msgs === "@Null arguments." ? null : msgs;
+}
+
 androidExec.init = function() {
     //CB-11828
     //This failsafe checks the version of Android and if it's Jellybean, it switches it to
@@ -216,6 +284,10 @@ function buildPayload(payload, message) {
         payload.push(base64.toArrayBuffer(data));
     } else if (payloadKind == 'S') {
         payload.push(window.atob(message.slice(1)));
+    } else if (payloadKind == 'B') {
+        payload.push(readBinaryPayload(message.slice(1), true));
+    } else if (payloadKind == 'b') {
+        payload.push(readBinaryPayload(message.slice(1), false));
     } else if (payloadKind == 'M') {
         var multipartMessages = message.slice(1);
         while (multipartMessages !== "") {
@@ -230,6 +302,39 @@ function buildPayload(payload, message) {
     }
 }
 
+// Fetches a large binary payload that native sent by URL (see BinaryBridge.java).
+// The read is synchronous so that callbacks are still delivered in order.
+function readBinaryPayload(url, asArrayBuffer) {
+    var xhr = new XMLHttpRequest();
+    xhr.open('GET', url, false);
+    try {
+        // Read the bytes directly where synchronous requests allow a typed response.
+        xhr.responseType = 'arraybuffer';
+    } catch (e) {
+        // Otherwise, returns each byte as one char in the range U+0000-U+00FF or U+F780-U+F7FF.
+        xhr.overrideMimeType('text/plain; charset=x-user-defined');
+    }
+    xhr.send(null);
+    var bytes;
+    if (xhr.responseType == 'arraybuffer') {
+        bytes = new Uint8Array(xhr.response);
+    } else {
+        var text = xhr.responseText;
+        bytes = new Uint8Array(text.length);
+        for (var i = 0; i < text.length; i++) {
+            bytes[i] = text.charCodeAt(i) & 0xff;
+        }
+    }
+    if (asArrayBuffer) {
+        return bytes.buffer;
+    }
+    var chunks = [];
+    for (var j = 0; j < bytes.length; j += 0x8000) {
+        chunks.push(String.fromCharCode.apply(null, bytes.subarray(j, j + 0x8000)));
+    }
+    return chunks.join('');
+}
+
 // Processes a single message, as encoded by NativeToJsMessageQueue.java.
 function processMessage(message) {
     var firstChar = message.charAt(0);
@@ -247,11 +352,38 @@ function processMessage(message) {
         var payload = [];
         buildPayload(payload, payloadMessage);
         cordova.callbackFromNative(callbackId, success, status, payload, keepCallback);
+    } else if (firstChar == 'P') {
+        var indexEnd = message.indexOf(' ', 1);
+        var countEnd = message.indexOf(' ', indexEnd + 1);
+        var idEnd = message.indexOf(' ', countEnd + 1);
+        processFragment(+message.slice(1, indexEnd), +message.slice(indexEnd + 1, countEnd),
+                message.slice(countEnd + 1, idEnd), message.slice(idEnd + 1));
     } else {
         console.log("processMessage failed: invalid message: " + JSON.stringify(message));
     }
 }
 
+// Fragments of chunked results, keyed by callbackId.
+var pendingFragments = {};
+
+// Collects one fragment of a chunked result (see PluginResult.setChunked()) and
+// processes the whole message once the last fragment arrives.
+function processFragment(index, count, callbackId, data) {
+    var fragments = pendingFragments[callbackId];
+    if (index === 0) {
+        fragments = pendingFragments[callbackId] = [];
+    } else if (!fragments || fragments.length != index) {
+        console.log("processFragment: dropping incomplete chunked message for " + callbackId);
+        delete pendingFragments[callbackId];
+        return;
+    }
+    fragments.push(data);
+    if (fragments.length == count) {
+        delete pendingFragments[callbackId];
+        processMessage(fragments.join(''));
+    }
+}
+
 function processMessages() {
     // Check for the reentrant case.
     if (isProcessing) {
@@ -294,4 +426,7 @@ function popMessageFromQueue() {
     return message;
 }
 
+androidExec.readBinaryPayload = readBinaryPayload;
+androidExec.processFragment = processFragment;
+
 module.exports = androidExec;
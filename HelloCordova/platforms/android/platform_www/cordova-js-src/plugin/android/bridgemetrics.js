@@ -0,0 +1,48 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+*/
+
+var exec = require('cordova/exec');
+
+module.exports = {
+    /**
+    * Get a snapshot of bridge latency and throughput figures.
+    * Requires <preference name="BridgeMetrics" value="true" /> in config.xml.
+    */
+    get:function(success, error) {
+        exec(success, error, "BridgeMetrics", "get", []);
+    },
+
+    /**
+    * Get the native->JS bridge mode chosen from measured round-trip latency, with the
+    * per-mode figures it was chosen from.
+    * Requires <preference name="AdaptiveBridgeMode" value="true" /> in config.xml.
+    */
+    getBridgeMode:function(success, error) {
+        exec(success, error, "BridgeMetrics", "bridgeMode", []);
+    },
+
+    /**
+    * Clear the collected figures.
+    */
+    reset:function(success, error) {
+        exec(success, error, "BridgeMetrics", "reset", []);
+    }
+};